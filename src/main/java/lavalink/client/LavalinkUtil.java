@@ -147,7 +147,11 @@ public class LavalinkUtil {
     }
 
     public static int getShardFromSnowflake(String snowflake, int numShards) {
-        return (int) ((Long.parseLong(snowflake) >> 22) % numShards);
+        return getShardFromSnowflake(Long.parseLong(snowflake), numShards);
+    }
+
+    public static int getShardFromSnowflake(long snowflake, int numShards) {
+        return (int) ((snowflake >> 22) % numShards);
     }
 
     @Deprecated
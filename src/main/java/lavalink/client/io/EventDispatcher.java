@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the handling of player events received from the nodes.
+ * <p>
+ * With zero threads, events are handled directly on the WebSocket read thread of the node that sent them. Otherwise
+ * events are striped by guild id over a fixed set of single-threaded executors: events of one guild are always handled
+ * in order by the same thread, while events of different guilds are spread across threads. A slow listener then only
+ * delays the guilds that share its stripe, instead of all traffic of the node.
+ *
+ * @see Lavalink#setEventDispatchThreads(int)
+ */
+@SuppressWarnings("WeakerAccess")
+public class EventDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(EventDispatcher.class);
+    /** How long an event may wait for the events before it, once we have been replaced or shut down */
+    private static final long SHUTDOWN_WAIT_SECONDS = 10;
+
+    private final ThreadPoolExecutor[] stripes;
+
+    EventDispatcher(int threads) {
+        if (threads < 0) throw new IllegalArgumentException("Thread count must not be negative");
+
+        stripes = new ThreadPoolExecutor[threads];
+        for (int i = 0; i < threads; i++) {
+            final String name = "lavalink-event-dispatch-" + i;
+            stripes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Handles a task on the stripe of the given guild, or right away if there are no dispatch threads.
+     */
+    void dispatch(long guildId, Runnable task) {
+        if (stripes.length == 0) {
+            task.run();
+            return;
+        }
+
+        ThreadPoolExecutor stripe = stripes[stripeOf(guildId)];
+        try {
+            stripe.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.error("Caught exception while handling event for guild " + guildId, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // We have been replaced or shut down in the meantime. Events of the guild that are still queued on the
+            // stripe go first, so we wait for them before handling this one here.
+            try {
+                if (!stripe.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                    log.warn("Dropped event for guild {}, earlier events of the guild are still being handled", guildId);
+                    return;
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                log.warn("Dropped event for guild {}, interrupted while waiting for earlier events", guildId);
+                return;
+            }
+            task.run();
+        }
+    }
+
+    private int stripeOf(long guildId) {
+        int hash = Long.hashCode(guildId);
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, stripes.length);
+    }
+
+    /**
+     * @return the number of dispatch threads. Zero means events are handled on the WebSocket read threads.
+     */
+    public int getThreadCount() {
+        return stripes.length;
+    }
+
+    /**
+     * @param stripe index of the dispatch thread, from 0 to {@link #getThreadCount()} exclusive
+     * @return the number of events waiting to be handled by that thread
+     */
+    public int getQueueDepth(int stripe) {
+        return stripes[stripe].getQueue().size();
+    }
+
+    /**
+     * @return the number of events waiting to be handled across all threads
+     */
+    public int getQueueDepth() {
+        int total = 0;
+        for (ThreadPoolExecutor stripe : stripes) {
+            total += stripe.getQueue().size();
+        }
+        return total;
+    }
+
+    /**
+     * Stops accepting new events. Events that have already been queued are still handled.
+     */
+    void shutdown() {
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.shutdown();
+        }
+    }
+
+}
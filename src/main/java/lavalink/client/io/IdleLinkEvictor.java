@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import lavalink.client.player.LavalinkPlayer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Destroys links that have not been connected or used for a while, so that links of guilds that issued a command
+ * once do not stay around forever.
+ * <p>
+ * A link is put in a {@link TimerWheel} when it may have become idle: when it is created, and when its state changes
+ * to {@link Link.State#NOT_CONNECTED}. When it comes up, it is destroyed if it is still idle, checked again later if
+ * it was used in the meantime, and dropped if it has connected. Only links that come up are looked at, the links are
+ * never scanned.
+ */
+final class IdleLinkEvictor {
+
+    private static final Logger log = LoggerFactory.getLogger(IdleLinkEvictor.class);
+    /** The timeout spans half of the wheel, so that links that were used recently do not come up early */
+    private static final int SLOTS = 64;
+
+    private final Lavalink<?> lavalink;
+    /** Nanoseconds, 0 if disabled */
+    private volatile long timeout = 0;
+    /** Guarded by this, null if disabled */
+    private TimerWheel<Link> wheel = null;
+    private final AtomicLong evicted = new AtomicLong();
+
+    IdleLinkEvictor(Lavalink<?> lavalink) {
+        this.lavalink = lavalink;
+    }
+
+    /**
+     * @param timeout in nanoseconds, 0 to disable
+     */
+    synchronized void setTimeout(long timeout) {
+        if (timeout < 0) throw new IllegalArgumentException("Timeout must not be negative");
+        this.timeout = timeout;
+        wheel = timeout == 0 ? null : new TimerWheel<>(SLOTS, Math.max(1, timeout / (SLOTS / 2)), System.nanoTime());
+        for (Link link : lavalink.getLinks()) {
+            link.evictionScheduled = false;
+            onIdle(link);
+        }
+    }
+
+    long getTimeout() {
+        return timeout;
+    }
+
+    long getEvicted() {
+        return evicted.get();
+    }
+
+    /**
+     * @return the number of links in the wheel, including some that are no longer idle
+     */
+    synchronized int getScheduled() {
+        return wheel == null ? 0 : wheel.size();
+    }
+
+    /**
+     * Invoked when a link may have become idle. Cheap if the link is already scheduled.
+     */
+    void onIdle(Link link) {
+        if (timeout == 0 || link.evictionScheduled) return;
+        synchronized (this) {
+            if (wheel == null || link.evictionScheduled) return;
+            link.evictionScheduled = true;
+            wheel.schedule(link, link.lastUsed + timeout);
+        }
+    }
+
+    void sweep() {
+        sweep(System.nanoTime());
+    }
+
+    void sweep(long now) {
+        List<Link> due;
+        synchronized (this) {
+            if (wheel == null) return;
+            due = wheel.advance(now);
+        }
+        if (due.isEmpty()) return;
+
+        int count = 0;
+        for (Link link : due) {
+            try {
+                if (evictIfIdle(link, now)) count++;
+            } catch (Exception e) {
+                log.error("Failed to evict idle link {}", link, e);
+            }
+        }
+        if (count > 0) log.debug("Evicted {} idle links", count);
+    }
+
+    /**
+     * @return true if the link was destroyed
+     */
+    private boolean evictIfIdle(Link link, long now) {
+        Link.State state = link.getState();
+        if (state == Link.State.DESTROYING || state == Link.State.DESTROYED) return false;
+        if (state != Link.State.NOT_CONNECTED) {
+            // It is scheduled again once it is no longer connected. The state is checked again after clearing the
+            // flag, in case it changed in between.
+            synchronized (this) {
+                link.evictionScheduled = false;
+            }
+            if (link.getState() == Link.State.NOT_CONNECTED) onIdle(link);
+            return false;
+        }
+
+        long timeout = this.timeout;
+        long deadline = link.lastUsed + timeout;
+        if (deadline - now > 0 || isPlaying(link)) {
+            synchronized (this) {
+                if (wheel == null) return false;
+                wheel.schedule(link, Math.max(deadline, now + wheel.getTickNanos()));
+            }
+            return false;
+        }
+
+        link.destroy();
+        evicted.incrementAndGet();
+        return true;
+    }
+
+    private static boolean isPlaying(Link link) {
+        LavalinkPlayer player = link.getExistingPlayer();
+        return player != null && player.getPlayingTrack() != null;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of the WebSocket round-trip times measured for a node.
+ * <p>
+ * Holds a smoothed value, weighted like TCP's SRTT, along with the most recent samples for percentiles.
+ */
+@SuppressWarnings("WeakerAccess")
+public class LatencyTracker {
+
+    private static final int SAMPLES = 64;
+    /** Weight of a new sample in the smoothed value */
+    private static final double ALPHA = 0.125;
+
+    private final long[] samples = new long[SAMPLES];
+    private int sampleCount = 0;
+    private int next = 0;
+    private double smoothedNanos = -1;
+    private long lastNanos = -1;
+
+    synchronized void record(long rttNanos) {
+        if (rttNanos < 0) return;
+
+        samples[next] = rttNanos;
+        next = (next + 1) % SAMPLES;
+        if (sampleCount < SAMPLES) sampleCount++;
+
+        lastNanos = rttNanos;
+        smoothedNanos = smoothedNanos < 0 ? rttNanos : smoothedNanos + ALPHA * (rttNanos - smoothedNanos);
+    }
+
+    /**
+     * @return the smoothed round-trip time in milliseconds, or -1 if nothing has been measured yet
+     */
+    public synchronized double getSmoothed() {
+        return smoothedNanos < 0 ? -1 : smoothedNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return the most recent round-trip time in milliseconds, or -1 if nothing has been measured yet
+     */
+    public synchronized double getLast() {
+        return lastNanos < 0 ? -1 : (double) lastNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the given percentile of the recent round-trip times in milliseconds, or -1 if nothing has been measured yet
+     */
+    public synchronized double getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) throw new IllegalArgumentException("Percentile must be within 0-100");
+        if (sampleCount == 0) return -1;
+
+        long[] sorted = Arrays.copyOf(samples, sampleCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sampleCount) - 1;
+        return (double) sorted[Math.max(0, index)] / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return the number of recent samples that percentiles are based on
+     */
+    public synchronized int getSampleCount() {
+        return sampleCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "LatencyTracker{" +
+                "smoothed=" + getSmoothed() +
+                ", p50=" + getPercentile(50) +
+                ", p99=" + getPercentile(99) +
+                ", samples=" + sampleCount +
+                '}';
+    }
+}
@@ -18,24 +18,38 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class Lavalink<T extends Link> {
 
     private static final Logger log = LoggerFactory.getLogger(Lavalink.class);
+    /** How often we measure the round-trip time to each node */
+    private static final long PING_INTERVAL_MS = 5000;
+    /** How often we check whether links should be moved to even out the load of the nodes */
+    private static final long REBALANCE_INTERVAL_MS = 10000;
+    /** How often we move a batch of links away from draining nodes */
+    private static final long DRAIN_INTERVAL_MS = 1000;
+    /** How often we check for idle links to evict. Only links whose time has come are looked at. */
+    private static final long EVICTION_INTERVAL_MS = 1000;
 
     @SuppressWarnings("WeakerAccess")
     protected final int numShards;
     /** User id may be set at a later time */
     @Nullable
     private String userId;
-    private final ConcurrentHashMap<String, T> links = new ConcurrentHashMap<>();
+    private final LinkRegistry<T> links = new LinkRegistry<>(this::onLinkRemoved);
     final List<LavalinkSocket> nodes = new CopyOnWriteArrayList<>();
     final LavalinkLoadBalancer loadBalancer = new LavalinkLoadBalancer(this);
+    final IdleLinkEvictor idleLinkEvictor = new IdleLinkEvictor(this);
     private final AudioPlayerManager audioPlayerManager;
 
     private final ScheduledExecutorService reconnectService;
+    private volatile EventDispatcher eventDispatcher = new EventDispatcher(0);
+    private volatile int resumeTimeout = 0;
+    private volatile boolean sharedHeartbeat = false;
+    private volatile ReconnectPolicy reconnectPolicy = ReconnectPolicy.exponentialBackoff(1000, 60000);
 
     /**
      * @param userId the user ID of the bot account
@@ -52,7 +66,10 @@ public abstract class Lavalink<T extends Link> {
             thread.setDaemon(true);
             return thread;
         });
-        reconnectService.scheduleWithFixedDelay(new ReconnectTask(this), 0, 500, TimeUnit.MILLISECONDS);
+        reconnectService.scheduleWithFixedDelay(this::pingNodes, PING_INTERVAL_MS, PING_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        reconnectService.scheduleWithFixedDelay(loadBalancer::rebalance, REBALANCE_INTERVAL_MS, REBALANCE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        reconnectService.scheduleWithFixedDelay(loadBalancer::drainNodes, DRAIN_INTERVAL_MS, DRAIN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        reconnectService.scheduleWithFixedDelay(idleLinkEvictor::sweep, EVICTION_INTERVAL_MS, EVICTION_INTERVAL_MS, TimeUnit.MILLISECONDS);
     }
 
     public Lavalink(@Nullable String userId, int numShards) {
@@ -68,6 +85,16 @@ public abstract class Lavalink<T extends Link> {
         this(null, numShards, null);
     }
 
+    private void pingNodes() {
+        for (LavalinkSocket node : nodes) {
+            try {
+                node.sendTimedPing();
+            } catch (Exception e) {
+                log.warn("Failed to ping " + node.getName(), e);
+            }
+        }
+    }
+
     private AudioPlayerManager createDefaultAudioPlayerManager() {
         AudioPlayerManager manager = new DefaultAudioPlayerManager();
         AudioSourceManagers.registerLocalSource(manager);
@@ -110,8 +137,11 @@ public abstract class Lavalink<T extends Link> {
         headers.put("Client-Name", "Lavalink-Client");
 
         LavalinkSocket socket = new LavalinkSocket(name, this, serverUri, new Draft_6455(), headers);
-        socket.connect();
+        if (resumeTimeout > 0) socket.setResuming(UUID.randomUUID().toString(), resumeTimeout);
+        socket.setSharedHeartbeat(sharedHeartbeat);
+        // Added first, so that a failed connect is retried
         nodes.add(socket);
+        socket.connect();
     }
 
     @SuppressWarnings("unused")
@@ -129,12 +159,42 @@ public abstract class Lavalink<T extends Link> {
     @SuppressWarnings("WeakerAccess")
     @NonNull
     public T getLink(@NonNull String guildId) {
-        return links.computeIfAbsent(guildId, __ -> buildNewLink(guildId));
+        long guild = Long.parseLong(guildId);
+        T link = links.get(guild);
+        if (link == null) {
+            // Built outside of the registry's lock, as implementations may run code that looks up links as well
+            T built = buildNewLink(Long.toString(guild));
+            link = links.putIfAbsent(guild, built);
+            if (link == built) {
+                onLinkAdded(link);
+                if (links.get(guild) != link) {
+                    // Destroyed by another thread before the hook had run, which then had nothing to remove
+                    onLinkRemoved(link);
+                    return link;
+                }
+                idleLinkEvictor.onIdle(link);
+                return link;
+            }
+        }
+        // Only the timestamp, the evictor checks it when the link comes up. Links are also looked up on hot paths, so
+        // it is not written more often than the evictor could tell the difference.
+        long now = System.nanoTime();
+        if (now - link.lastUsed > TimeUnit.MILLISECONDS.toNanos(EVICTION_INTERVAL_MS)) link.lastUsed = now;
+        return link;
     }
 
     @SuppressWarnings("WeakerAccess")
     @Nullable
     public T getExistingLink(@NonNull String guildId) {
+        return links.get(Long.parseLong(guildId));
+    }
+
+    /**
+     * Looks up a link without creating one, and without parsing or allocating anything
+     */
+    @SuppressWarnings("WeakerAccess")
+    @Nullable
+    public T getExistingLink(long guildId) {
         return links.get(guildId);
     }
 
@@ -152,6 +212,10 @@ public abstract class Lavalink<T extends Link> {
         return numShards;
     }
 
+    /**
+     * @return a live view of the links. Removing a link through the iterator takes it out of this instance without
+     * destroying it.
+     */
     @SuppressWarnings("WeakerAccess")
     @NonNull
     public Collection<T> getLinks() {
@@ -176,19 +240,156 @@ public abstract class Lavalink<T extends Link> {
         this.userId = userId;
     }
 
+    /**
+     * Single-threaded scheduler for our internal housekeeping. Tasks must be short.
+     */
+    protected ScheduledExecutorService getScheduler() {
+        return reconnectService;
+    }
+
+    @NonNull
+    public EventDispatcher getEventDispatcher() {
+        return eventDispatcher;
+    }
+
+    /**
+     * Sets how many threads are used to handle player events, such as {@link lavalink.client.player.event.TrackEndEvent}.
+     * Events of the same guild are always handled in order by the same thread.
+     * <p>
+     * Defaults to 0, in which case events are handled on the WebSocket thread of the node that sent them. This means a
+     * slow {@link lavalink.client.player.event.IPlayerEventListener} will hold up all other messages from that node.
+     * Should preferably be set before adding nodes.
+     *
+     * @param threads number of dispatch threads, or 0 to handle events on the WebSocket threads
+     */
+    @SuppressWarnings("unused")
+    public void setEventDispatchThreads(int threads) {
+        EventDispatcher old = eventDispatcher;
+        eventDispatcher = new EventDispatcher(threads);
+        old.shutdown();
+    }
+
+    @NonNull
+    public ReconnectPolicy getReconnectPolicy() {
+        return reconnectPolicy;
+    }
+
+    /**
+     * Sets how long to wait between attempts to reconnect to a node.
+     * Defaults to {@link ReconnectPolicy#exponentialBackoff(long, long)} starting at 1 second and capped at 1 minute.
+     */
+    @SuppressWarnings("unused")
+    public void setReconnectPolicy(@NonNull ReconnectPolicy reconnectPolicy) {
+        this.reconnectPolicy = reconnectPolicy;
+    }
+
+    /**
+     * Enables session resuming for all current and future nodes, each with its own random resume key.
+     * After a short connection loss, players are then picked up where they were instead of being moved to other nodes.
+     *
+     * @param timeout how long a node should keep our players after a disconnect, in seconds. 0 disables resuming.
+     * @see LavalinkSocket#setResuming(String, int)
+     */
+    @SuppressWarnings("unused")
+    public void setResuming(int timeout) {
+        if (timeout < 0) throw new IllegalArgumentException("Timeout must not be negative");
+        resumeTimeout = timeout;
+        for (LavalinkSocket node : nodes) {
+            if (timeout == 0) {
+                node.setResuming(null, 0);
+            } else {
+                String key = node.getResumeKey();
+                node.setResuming(key != null ? key : UUID.randomUUID().toString(), timeout);
+            }
+        }
+    }
+
+    /**
+     * Destroys links that have been {@link Link.State#NOT_CONNECTED} without a playing track for the given time since
+     * they were last returned by {@link #getLink(String)} or changed state. Without this, a link is kept for every
+     * guild that ever used the bot, until {@link Link#destroy()} is called. Links are checked when their time is up,
+     * rather than by scanning all of them. Disabled by default.
+     * <p>
+     * An evicted link is {@link Link.State#DESTROYED}, so references to it should not be kept. Get the link again
+     * with {@link #getLink(String)} instead.
+     *
+     * @param timeout 0 disables eviction
+     */
+    @SuppressWarnings("unused")
+    public void setIdleLinkTimeout(long timeout, @NonNull TimeUnit unit) {
+        idleLinkEvictor.setTimeout(unit.toNanos(timeout));
+    }
+
+    /**
+     * @return the total number of links destroyed by {@link #setIdleLinkTimeout(long, TimeUnit)}
+     */
+    @SuppressWarnings("unused")
+    public long getEvictedLinks() {
+        return idleLinkEvictor.getEvicted();
+    }
+
+    /**
+     * Checks the heartbeat of all current and future nodes from a single timer thread shared by all Lavalink
+     * instances in this JVM, instead of from a timer thread per connection. Each connection still has its own read
+     * and write thread. Applies to a node from its next connect.
+     *
+     * @see ReusableWebSocket#setSharedHeartbeat(boolean)
+     */
+    @SuppressWarnings("unused")
+    public void setSharedHeartbeat(boolean sharedHeartbeat) {
+        this.sharedHeartbeat = sharedHeartbeat;
+        for (LavalinkSocket node : nodes) {
+            node.setSharedHeartbeat(sharedHeartbeat);
+        }
+    }
+
     public void shutdown() {
         reconnectService.shutdown();
+        eventDispatcher.shutdown();
         nodes.forEach(ReusableWebSocket::close);
+        // Closing completes in the background, the shared heartbeat thread should not wait for it
+        nodes.forEach(SharedHeartbeat::unregister);
     }
 
     void removeDestroyedLink(Link link) {
         log.debug("Destroyed link for guild " + link.getGuildId());
-        links.remove(link.getGuildId());
+        links.remove(link.getGuildIdLong());
+    }
+
+    /**
+     * Hook invoked when a link built by {@link #buildNewLink(String)} has been added, and is returned by
+     * {@link #getLinks()}. Links that lost a race with another thread building one for the same guild are dropped
+     * without being added. If the link is destroyed while this runs, {@link #onLinkRemoved(Link)} is invoked after
+     * this as well.
+     *
+     * @param link the added link
+     */
+    protected void onLinkAdded(@NonNull T link) {
     }
 
+    /**
+     * Hook invoked when a link built by {@link #buildNewLink(String)} has been destroyed, or removed through the
+     * iterator of {@link #getLinks()}, and is no longer returned by {@link #getLinks()}. For implementations that keep
+     * their own index of the links.
+     *
+     * @param link the removed link
+     */
+    protected void onLinkRemoved(@NonNull T link) {
+    }
+
+    /**
+     * @return a copy of the links by guild id
+     * @deprecated links are no longer kept by their id as a String. Use {@link #getLinks()} or
+     * {@link #getExistingLink(long)} instead.
+     */
+    @Deprecated
     @SuppressWarnings("WeakerAccess")
     protected Map<String, T> getLinksMap() {
-        return links;
+        Map<String, T> map = new HashMap<>();
+        for (T link : links.values()) {
+            map.put(link.getGuildId(), link);
+        }
+        return map;
     }
 
     public AudioPlayerManager getAudioPlayerManager() {
@@ -5,42 +5,127 @@
 package lavalink.client.io;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntBinaryOperator;
+import java.util.function.ToIntFunction;
 
 @SuppressWarnings("WeakerAccess")
 public class LavalinkLoadBalancer {
 
+    private static final Logger log = LoggerFactory.getLogger(LavalinkLoadBalancer.class);
+
     private Lavalink lavalink;
     //private Map<String, Optional<LavalinkSocket>> socketMap = new ConcurrentHashMap<>();
     private List<PenaltyProvider> penaltyProviders = new ArrayList<>();
+    private volatile int nodeCapacity = Integer.MAX_VALUE;
+    private volatile int regionMismatchPenalty = 500;
+    @NonNull
+    private volatile NodeSelectionStrategy selectionStrategy = NodeSelectionStrategy.leastPenalty();
+    @NonNull
+    private volatile ScoringModel scoringModel = ScoringModel.latest();
+    private final MigrationPacer migrationPacer;
+    private final Rebalancer rebalancer;
+    @Nullable
+    private volatile MigrationReport lastMigration = null;
 
     LavalinkLoadBalancer(Lavalink lavalink) {
         this.lavalink = lavalink;
+        this.migrationPacer = new MigrationPacer(lavalink, 100, 100);
+        this.rebalancer = new Rebalancer(lavalink);
     }
 
     @NonNull
     public LavalinkSocket determineBestSocket(long guild) {
-        LavalinkSocket leastPenalty = null;
-        int record = Integer.MAX_VALUE;
+        Link link = lavalink.getExistingLink(guild);
+        return determineBestSocket(guild, link == null ? null : link.getVoiceRegion());
+    }
 
+    /**
+     * @param region the region of the guild's voice server, if known
+     */
+    @NonNull
+    public LavalinkSocket determineBestSocket(long guild, @Nullable String region) {
         @SuppressWarnings("unchecked")
         List<LavalinkSocket> nodes = lavalink.getNodes();
-        for (LavalinkSocket socket : nodes) {
-            int total = getPenalties(socket, guild, penaltyProviders).getTotal();
-            if (total < record) {
-                leastPenalty = socket;
-                record = total;
-            }
-        }
+        // Without custom penalties, there is no need for a Penalties instance
+        ToIntFunction<LavalinkSocket> penalty = penaltyProviders.isEmpty()
+                ? socket -> getTotal(socket, region)
+                : socket -> new Penalties(socket, guild, region, penaltyProviders, lavalink).getTotal();
+        LavalinkSocket selected = selectionStrategy.select(guild, nodes, penalty);
 
-        if (leastPenalty == null || !leastPenalty.isAvailable())
+        if (selected == null || !selected.isAvailable() || selected.isDraining())
             throw new IllegalStateException("No available nodes!");
 
-        return leastPenalty;
+        return selected;
+    }
+
+    /**
+     * Sets how a node is picked for a guild. Defaults to {@link NodeSelectionStrategy#leastPenalty()}.
+     * Does not affect how the links of a lost node are spread over the remaining nodes.
+     */
+    @SuppressWarnings("unused")
+    public void setSelectionStrategy(@NonNull NodeSelectionStrategy selectionStrategy) {
+        this.selectionStrategy = selectionStrategy;
+    }
+
+    @NonNull
+    @SuppressWarnings("unused")
+    public NodeSelectionStrategy getSelectionStrategy() {
+        return selectionStrategy;
+    }
+
+    /**
+     * Sets how the stats of a node are turned into penalties. Defaults to {@link ScoringModel#latest()}.
+     */
+    @SuppressWarnings("unused")
+    public void setScoringModel(@NonNull ScoringModel scoringModel) {
+        this.scoringModel = scoringModel;
+        @SuppressWarnings("unchecked")
+        List<LavalinkSocket> nodes = lavalink.getNodes();
+        for (LavalinkSocket node : nodes) {
+            node.publishPenaltySnapshot();
+        }
+    }
+
+    @NonNull
+    @SuppressWarnings("unused")
+    public ScoringModel getScoringModel() {
+        return scoringModel;
+    }
+
+    private int getTotal(LavalinkSocket socket, @Nullable String region) {
+        PenaltySnapshot snapshot = socket.getPenaltySnapshot();
+        int base = snapshot.getTotal();
+        if (base == PenaltySnapshot.UNAVAILABLE || !socket.isAvailable() || socket.isDraining()) {
+            return PenaltySnapshot.UNAVAILABLE;
+        }
+        return base + snapshot.getPlayerPenalty(socket.getPlayingPlayers()) + getRegionPenalty(socket, region);
+    }
+
+    /**
+     * @return the penalty of using a node for a voice server in the given region. 0 if the region is unknown.
+     * @see LavalinkSocket#setRegions(String...)
+     */
+    public int getRegionPenalty(@NonNull LavalinkSocket socket, @Nullable String region) {
+        if (region == null) return 0;
+        return socket.getRegionPenalty(region, regionMismatchPenalty);
+    }
+
+    /**
+     * Sets the penalty of a node that is tagged with regions, but neither with the region of a guild's voice server
+     * nor with a latency to it. Nodes without any region information get no region penalty. Defaults to 500.
+     */
+    @SuppressWarnings("unused")
+    public void setRegionMismatchPenalty(int regionMismatchPenalty) {
+        this.regionMismatchPenalty = regionMismatchPenalty;
     }
 
     @SuppressWarnings("unused")
@@ -53,13 +138,203 @@ public class LavalinkLoadBalancer {
         this.penaltyProviders.remove(penalty);
     }
 
+    /**
+     * Sets how many links a node may take when the links of a lost node are spread over the remaining nodes.
+     * Only once all nodes are full are they given more. Defaults to no limit.
+     */
+    @SuppressWarnings("unused")
+    public void setNodeCapacity(int nodeCapacity) {
+        if (nodeCapacity < 0) throw new IllegalArgumentException("Capacity must not be negative");
+        this.nodeCapacity = nodeCapacity;
+    }
+
+    @SuppressWarnings("unused")
+    public int getNodeCapacity() {
+        return nodeCapacity;
+    }
+
+    /**
+     * Sets how fast the links of a lost node are moved to each of the remaining nodes. Links that are playing are
+     * moved first. Defaults to 100 links per second per node, with bursts of up to 100.
+     *
+     * @param linksPerSecond the rate per target node. 0 or less moves all links at once.
+     * @param burst          how many links a node may take at once after it has not taken any for a while
+     */
+    @SuppressWarnings("unused")
+    public void setMigrationRate(double linksPerSecond, int burst) {
+        migrationPacer.setRate(linksPerSecond, burst);
+    }
+
+    /**
+     * @return the number of links waiting to be moved to the given node
+     */
+    @SuppressWarnings("unused")
+    public int getMigrationBacklog(LavalinkSocket node) {
+        return migrationPacer.getBacklog(node);
+    }
+
+    /**
+     * @return how long the link that has been waiting the longest to be moved to the given node has been without a
+     * working node, in milliseconds. 0 if none are waiting.
+     */
+    @SuppressWarnings("unused")
+    public long getOldestMigrationWait(LavalinkSocket node) {
+        return TimeUnit.NANOSECONDS.toMillis(migrationPacer.getOldestPending(node));
+    }
+
+    /**
+     * @return the total number of links moved to another node because their node was lost
+     */
+    @SuppressWarnings("unused")
+    public long getMigratedLinks() {
+        return migrationPacer.getMigrated();
+    }
+
+    /**
+     * @return the total time that the links counted by {@link #getMigratedLinks()} spent without a working node,
+     * in milliseconds
+     */
+    @SuppressWarnings("unused")
+    public long getMigrationOutageTime() {
+        return TimeUnit.NANOSECONDS.toMillis(migrationPacer.getOutageNanos());
+    }
+
+    /**
+     * @return how the links of the node that was lost most recently were moved, or null if no node was lost yet
+     */
+    @Nullable
+    @SuppressWarnings("unused")
+    public MigrationReport getLastMigration() {
+        return lastMigration;
+    }
+
+    /**
+     * Sets whether links are moved from busy nodes to quiet ones in the background, such as to a node that has just
+     * joined or recovered. Links that are idle or paused are moved right away, playing links when their track ends.
+     * Disabled by default. Draining nodes are emptied either way.
+     */
+    @SuppressWarnings("unused")
+    public void setRebalancing(boolean enabled) {
+        rebalancer.setEnabled(enabled);
+    }
+
+    @SuppressWarnings("unused")
+    public boolean isRebalancing() {
+        return rebalancer.isEnabled();
+    }
+
+    /**
+     * Sets how far above or below the average number of links a node may be before links are moved to even out the
+     * load. Defaults to 0.2, i.e. 20% off the average.
+     */
+    @SuppressWarnings("unused")
+    public void setRebalanceThreshold(double threshold) {
+        rebalancer.setThreshold(threshold);
+    }
+
+    /**
+     * Sets how many links may be moved or scheduled to move each time the balance is checked. Defaults to 10.
+     */
+    @SuppressWarnings("unused")
+    public void setRebalanceBatchSize(int batchSize) {
+        rebalancer.setBatchSize(batchSize);
+    }
+
+    /**
+     * @return the total number of idle or paused links moved to another node to even out the load
+     */
+    @SuppressWarnings("unused")
+    public long getRebalancedIdleLinks() {
+        return rebalancer.getIdleMoves();
+    }
+
+    /**
+     * @return the total number of playing links moved to another node at the end of their track to even out the load
+     */
+    @SuppressWarnings("unused")
+    public long getRebalancedPlayingLinks() {
+        return rebalancer.getTrackEndMoves();
+    }
+
+    /**
+     * @return the total number of links moved away from draining nodes
+     * @see LavalinkSocket#drain()
+     */
+    @SuppressWarnings("unused")
+    public long getDrainedLinks() {
+        return rebalancer.getDrainMoves();
+    }
+
+    void rebalance() {
+        rebalancer.run();
+    }
+
+    void drainNodes() {
+        rebalancer.runDrain();
+    }
+
+    void onTrackEndMove(boolean drain) {
+        rebalancer.onTrackEndMove(drain);
+    }
+
     void onNodeDisconnect(LavalinkSocket disconnected) {
+        long start = System.nanoTime();
+        long since = disconnected.getDisconnectedSince() != 0 ? disconnected.getDisconnectedSince() : start;
+        // Links that were still waiting to be moved to this node need a new one as well
+        List<MigrationPacer.Pending> orphans = migrationPacer.cancel(disconnected);
         //noinspection unchecked
         Collection<Link> links = lavalink.getLinks();
-        links.forEach(link -> {
-            if (disconnected.equals(link.getNode(false)))
-                link.changeNode(lavalink.loadBalancer.determineBestSocket(link.getGuildIdLong()));
-        });
+        for (Link link : links) {
+            if (disconnected.equals(link.getNode(false))) orphans.add(new MigrationPacer.Pending(link, disconnected, since));
+        }
+        if (orphans.isEmpty()) return;
+
+        List<LavalinkSocket> candidates = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        List<LavalinkSocket> nodes = lavalink.getNodes();
+        for (LavalinkSocket node : nodes) {
+            if (node != disconnected && node.isAvailable() && !node.isDraining()) candidates.add(node);
+        }
+        if (candidates.isEmpty()) {
+            log.warn("No available nodes to move the {} links of {} to", orphans.size(), disconnected.getName());
+            return;
+        }
+
+        int[] penalties = new int[candidates.size()];
+        double[] weights = new double[candidates.size()];
+        int[] capacities = new int[candidates.size()];
+        for (int i = 0; i < candidates.size(); i++) {
+            LavalinkSocket node = candidates.get(i);
+            penalties[i] = getTotal(node, null);
+            weights[i] = node.getPenaltySnapshot().getPlayerWeight();
+            capacities[i] = Math.max(0, nodeCapacity - node.getAssignedPlayers());
+        }
+        boolean custom = !penaltyProviders.isEmpty();
+        IntBinaryOperator linkPenalty = (link, node) -> {
+            Link orphan = orphans.get(link).link;
+            if (!custom) return getRegionPenalty(candidates.get(node), orphan.getVoiceRegion());
+
+            Penalties orphanPenalties = new Penalties(candidates.get(node), orphan.getGuildIdLong(), orphan.getVoiceRegion(), penaltyProviders, lavalink);
+            return orphanPenalties.getRegionPenalty() + orphanPenalties.getCustomPenalties();
+        };
+
+        int[] plan = MigrationPlanner.plan(orphans.size(), penalties, weights, capacities, linkPenalty);
+        long planned = System.nanoTime();
+
+        int[] assigned = new int[candidates.size()];
+        int overCapacity = 0;
+        for (int i = 0; i < plan.length; i++) {
+            if (assigned[plan[i]]++ >= capacities[plan[i]]) overCapacity++;
+            migrationPacer.submit(orphans.get(i), candidates.get(plan[i]));
+        }
+
+        MigrationReport report = new MigrationReport(disconnected.getName(), orphans.size(), overCapacity,
+                planned - start, System.nanoTime() - planned);
+        lastMigration = report;
+        log.info("Moving links away from {}: {}", disconnected.getName(), report);
+        if (overCapacity > 0) {
+            log.warn("All nodes were at capacity, {} links were moved to nodes beyond their capacity", overCapacity);
+        }
     }
 
     void onNodeConnect(LavalinkSocket connected) {
@@ -81,12 +356,12 @@ public class LavalinkLoadBalancer {
     }
 
     public Penalties getPenalties(LavalinkSocket socket, long guild, List<PenaltyProvider> penaltyProviders) {
-        return new Penalties(socket, guild, penaltyProviders, lavalink);
+        return new Penalties(socket, guild, null, penaltyProviders, lavalink);
     }
 
     @SuppressWarnings("unused")
     public static Penalties getPenalties(LavalinkSocket socket) {
-        return new Penalties(socket, 0L, Collections.emptyList(), null);
+        return new Penalties(socket, 0L, null, Collections.emptyList(), null);
     }
 
     @SuppressWarnings("unused")
@@ -94,52 +369,34 @@ public class LavalinkLoadBalancer {
 
         private LavalinkSocket socket;
         private final long guild;
+        @Nullable
+        private final String region;
+        private final PenaltySnapshot snapshot;
         private int playerPenalty = 0;
-        private int cpuPenalty = 0;
-        private int deficitFramePenalty = 0;
-        private int nullFramePenalty = 0;
+        private int regionPenalty = 0;
         private int customPenalties = 0;
         private final Lavalink lavalink;
 
-        private Penalties(LavalinkSocket socket, long guild, List<PenaltyProvider> penaltyProviders, Lavalink lavalink) {
+        private Penalties(LavalinkSocket socket, long guild, @Nullable String region, List<PenaltyProvider> penaltyProviders, Lavalink lavalink) {
             this.lavalink = lavalink;
             this.socket = socket;
             this.guild = guild;
-            RemoteStats stats = socket.getStats();
+            this.region = region;
+            // The stats based penalties are computed once per stats message, see LavalinkSocket#getPenaltySnapshot()
+            this.snapshot = socket.getPenaltySnapshot();
+            RemoteStats stats = snapshot.getStats();
             if (stats == null) return; // Will return as max penalty anyways
-            // This will serve as a rule of thumb. 1 playing player = 1 penalty point
+            // This will serve as a rule of thumb. 1 playing player = 1 penalty point, unless the scoring model weighs them
             if (lavalink != null) {
-                playerPenalty = countPlayingPlayers();
+                playerPenalty = snapshot.getPlayerPenalty(socket.getPlayingPlayers());
             } else {
-                playerPenalty = stats.getPlayingPlayers();
+                playerPenalty = snapshot.getPlayerPenalty(stats.getPlayingPlayers());
             }
+            if (lavalink != null) regionPenalty = lavalink.loadBalancer.getRegionPenalty(socket, region);
 
-            // https://fred.moe/293.png
-            cpuPenalty = (int) Math.pow(1.05d, 100 * stats.getSystemLoad()) * 10 - 10;
-
-            // -1 Means we don't have any frame stats. This is normal for very young nodes
-            if (stats.getAvgFramesDeficitPerMinute() != -1) {
-                // https://fred.moe/rjD.png
-                deficitFramePenalty = (int) (Math.pow(1.03d, 500f * ((float) stats.getAvgFramesDeficitPerMinute() / 3000f)) * 600 - 600);
-                nullFramePenalty = (int) (Math.pow(1.03d, 500f * ((float) stats.getAvgFramesNulledPerMinute() / 3000f)) * 300 - 300);
-                nullFramePenalty *= 2;
-                // Deficit frames are better than null frames, as deficit frames can be caused by the garbage collector
-            }
             penaltyProviders.forEach(pp -> customPenalties += pp.getPenalty(this));
         }
 
-        private int countPlayingPlayers() {
-            //noinspection unchecked
-            Collection<Link> links = lavalink.getLinks();
-            Long players = links
-                    .stream().filter(link ->
-                            socket.equals(link.getNode(false)) &&
-                                    link.getPlayer().getPlayingTrack() != null &&
-                                    !link.getPlayer().isPaused())
-                    .count();
-            return players.intValue();
-        }
-
         public LavalinkSocket getSocket() {
             return socket;
         }
@@ -152,16 +409,44 @@ public class LavalinkLoadBalancer {
             return playerPenalty;
         }
 
+        /**
+         * @return the region of the guild's voice server, if known
+         */
+        @Nullable
+        public String getRegion() {
+            return region;
+        }
+
+        public int getRegionPenalty() {
+            return regionPenalty;
+        }
+
         public int getCpuPenalty() {
-            return cpuPenalty;
+            return snapshot.getCpuPenalty();
         }
 
         public int getDeficitFramePenalty() {
-            return deficitFramePenalty;
+            return snapshot.getDeficitFramePenalty();
         }
 
         public int getNullFramePenalty() {
-            return nullFramePenalty;
+            return snapshot.getNullFramePenalty();
+        }
+
+        public int getMemoryPenalty() {
+            return snapshot.getMemoryPenalty();
+        }
+
+        public PenaltySnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        /**
+         * @return the recent stats of the node, for penalties that should not depend on a single stats message
+         */
+        @NonNull
+        public StatsHistory getStatsHistory() {
+            return socket.getStatsHistory();
         }
 
         public int getCustomPenalties() {
@@ -169,22 +454,28 @@ public class LavalinkLoadBalancer {
         }
 
         public int getTotal() {
-            if (!socket.isAvailable() || socket.getStats() == null) return (Integer.MAX_VALUE - 1);
-            return playerPenalty + cpuPenalty + deficitFramePenalty + nullFramePenalty + customPenalties;
+            if (!socket.isAvailable() || socket.isDraining() || snapshot.getStats() == null) {
+                return PenaltySnapshot.UNAVAILABLE;
+            }
+            return playerPenalty + regionPenalty + getCpuPenalty() + getDeficitFramePenalty() + getNullFramePenalty()
+                    + getMemoryPenalty() + customPenalties;
         }
 
         @Override
         public String toString() {
-            if (!socket.isAvailable()) return "Penalties{" +
-                    "unavailable=" + (Integer.MAX_VALUE - 1) +
+            int total = getTotal();
+            if (total == PenaltySnapshot.UNAVAILABLE) return "Penalties{" +
+                    "unavailable=" + total +
                     '}';
 
             return "Penalties{" +
-                    "total=" + getTotal() +
+                    "total=" + total +
                     ", playerPenalty=" + playerPenalty +
-                    ", cpuPenalty=" + cpuPenalty +
-                    ", deficitFramePenalty=" + deficitFramePenalty +
-                    ", nullFramePenalty=" + nullFramePenalty +
+                    ", regionPenalty=" + regionPenalty +
+                    ", cpuPenalty=" + getCpuPenalty() +
+                    ", deficitFramePenalty=" + getDeficitFramePenalty() +
+                    ", nullFramePenalty=" + getNullFramePenalty() +
+                    ", memoryPenalty=" + getMemoryPenalty() +
                     ", custom=" + customPenalties +
                     '}';
         }
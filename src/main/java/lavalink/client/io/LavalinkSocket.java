@@ -21,14 +21,31 @@ import java.io.IOException;
 import java.net.ConnectException;
 import java.net.URI;
 import java.nio.channels.NotYetConnectedException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.LongStream;
 
 public class LavalinkSocket extends ReusableWebSocket {
 
     private static final Logger log = LoggerFactory.getLogger(LavalinkSocket.class);
 
     private static final int TIMEOUT_MS = 5000;
+    private static final int DEFAULT_SEND_QUEUE_CAPACITY = 10000;
     @NonNull
     private final String name;
     @NonNull
@@ -36,13 +53,68 @@ public class LavalinkSocket extends ReusableWebSocket {
     @NonNull
     final Lavalink<?> lavalink;
     @Nullable
-    private RemoteStats stats;
-    long lastReconnectAttempt = 0;
-    private int reconnectsAttempted = 0;
+    private volatile RemoteStats stats;
+    /** Republished whenever the stats or availability change */
+    @NonNull
+    private volatile PenaltySnapshot penaltySnapshot = PenaltySnapshot.EMPTY;
+    private volatile int reconnectsAttempted = 0;
+    private final AtomicBoolean reconnectScheduled = new AtomicBoolean(false);
+    private final AtomicLong totalReconnectAttempts = new AtomicLong(0);
+    /** When we lost the connection, by {@link System#nanoTime()}. 0 if connected or never connected. */
+    private volatile long disconnectedSince = 0;
+    private volatile long lastTimeToReconnectNanos = 0;
+    private final LatencyTracker latency = new LatencyTracker();
+    private final StatsHistory statsHistory = new StatsHistory(16);
+    /** Maintained by {@link Link} */
+    private final AtomicInteger assignedPlayers = new AtomicInteger(0);
+    private final AtomicInteger playingPlayers = new AtomicInteger(0);
+    /** Voice regions this node is in or near. Replaced as a whole. */
+    @NonNull
+    private volatile Set<String> regions = Collections.emptySet();
+    /** Measured latencies to voice regions, in milliseconds. Replaced as a whole. */
+    @NonNull
+    private volatile Map<String, Integer> regionLatencies = Collections.emptyMap();
+    private volatile boolean draining = false;
+    /** Guarded by this. Null if not draining. */
+    @Nullable
+    private CompletableFuture<Void> drainFuture = null;
+    /** By {@link System#nanoTime()}, 0 if playing links may take as long as their track */
+    private volatile long drainDeadline = 0;
+    private volatile int drainStartPlayers = 0;
     @NonNull
     private final URI remoteUri;
     private final LavalinkRestClient restClient;
-    private boolean available = false;
+    /** Only used from the read thread */
+    private final NodeMessageDecoder decoder = new NodeMessageDecoder();
+    /** Ops sent while we are not connected. Also used to order direct sends against a flush. */
+    private final OutboundQueue sendQueue = new OutboundQueue(DEFAULT_SEND_QUEUE_CAPACITY);
+    private volatile long lastFlushLatencyNanos = 0;
+    /** Set while the links are set up again after a reconnect, so that this goes out before the queued ops */
+    private boolean resyncing = false;
+    /** Coalescable ops waiting for the end of the coalescing window */
+    private final OutboundQueue coalescer = new OutboundQueue(DEFAULT_SEND_QUEUE_CAPACITY);
+    private volatile long coalescingWindowNanos = 0;
+    private volatile boolean available = false;
+    /** The handshake headers, shared with {@link ReusableWebSocket} so that changes apply to the next connect */
+    private final Map<String, String> headers;
+    @Nullable
+    private volatile String resumeKey = null;
+    private volatile int resumeTimeout = 0;
+    /**
+     * Set while links are kept on this node in the hope of resuming. A new token for every wait, so that the timeout
+     * of an earlier wait cannot act on a later one.
+     */
+    private final AtomicReference<Object> awaitingResume = new AtomicReference<>(null);
+    /**
+     * Set when a session opens, and cleared when we start waiting to resume it. Once a wait has timed out, failed
+     * reconnects have no session left to resume.
+     */
+    private final AtomicBoolean resumableSession = new AtomicBoolean(false);
+    @Nullable
+    private volatile ScheduledFuture<?> resumeTimeoutFuture = null;
+    /** Guilds moved away when resuming timed out, in case the node resumes us anyway. Only cleared by onOpen. */
+    @Nullable
+    private volatile long[] migratedGuilds = null;
 
     LavalinkSocket(@NonNull String name, @NonNull Lavalink<?> lavalink, @NonNull URI serverUri, Draft protocolDraft, Map<String, String> headers) {
         super(serverUri, protocolDraft, headers, TIMEOUT_MS);
@@ -51,6 +123,7 @@ public class LavalinkSocket extends ReusableWebSocket {
         this.lavalink = lavalink;
         this.remoteUri = serverUri;
         this.restClient = new LavalinkRestClient(this);
+        this.headers = headers;
     }
 
     @NonNull
@@ -60,43 +133,114 @@ public class LavalinkSocket extends ReusableWebSocket {
 
     @Override
     public void onOpen(ServerHandshake handshakeData) {
-        log.info("Received handshake from server");
+        boolean resumed = "true".equalsIgnoreCase(handshakeData.getFieldValue("Session-Resumed"));
+        boolean wasAwaitingResume = awaitingResume.getAndSet(null) != null;
+        cancelResumeTimeout();
+        long[] migrated = migratedGuilds;
+        migratedGuilds = null;
+        resumableSession.set(true);
+
+        log.info(resumed ? "Received handshake from server, resumed session" : "Received handshake from server");
         available = true;
+        publishPenaltySnapshot();
+
+        if (resumed && migrated != null) {
+            // We gave up on resuming before the node let us resume. These players now live elsewhere.
+            destroyMigratedPlayers(migrated);
+        } else if (!resumed && wasAwaitingResume) {
+            // The node has forgotten about us, so the links we kept need to be set up again. This goes before the
+            // queued ops that are left, which the node can only act on once it has the voice state.
+            synchronized (sendQueue) {
+                resyncing = true;
+                try {
+                    resyncLinks();
+                } finally {
+                    resyncing = false;
+                }
+            }
+        }
+        flushSendQueue();
+
+        if (resumeKey != null) {
+            send(MessageEncoder.configureResuming(resumeKey, resumeTimeout));
+        }
+
         lavalink.loadBalancer.onNodeConnect(this);
+
+        if (disconnectedSince != 0) {
+            lastTimeToReconnectNanos = System.nanoTime() - disconnectedSince;
+            log.info("Reconnected to {} after {} attempts and {}ms", name, reconnectsAttempted,
+                    TimeUnit.NANOSECONDS.toMillis(lastTimeToReconnectNanos));
+            disconnectedSince = 0;
+        }
         reconnectsAttempted = 0;
     }
 
     @Override
     public void onMessage(String message) {
+        // playerUpdate makes up most of our traffic, so we try to handle it without building a JSONObject
+        if (decoder.decode(message)
+                && decoder.getOp() == NodeMessageDecoder.Op.PLAYER_UPDATE
+                && decoder.hasPlayerState()) {
+            Link link = getLinkOnThisNode(decoder.getGuildId());
+            if (link != null) {
+                link.getPlayer().provideState(decoder.getStateTime(), decoder.getStatePosition(), decoder.isStateConnected());
+            }
+            return;
+        }
+
         JSONObject json = new JSONObject(message);
+        String op = json.getString("op");
 
-        if (!Objects.equals(json.getString("op"), "playerUpdate")) {
+        if (!Objects.equals(op, "playerUpdate")) {
             log.debug(message);
         }
 
-        switch (json.getString("op")) {
+        switch (op) {
             case "playerUpdate":
-                lavalink.getLink(json.getString("guildId"))
-                        .getPlayer()
-                        .provideState(json.getJSONObject("state"));
+                Link link = getLinkOnThisNode(Long.parseLong(json.getString("guildId")));
+                if (link != null) link.getPlayer().provideState(json.getJSONObject("state"));
                 break;
             case "stats":
                 stats = new RemoteStats(json);
+                statsHistory.record(stats, System.nanoTime());
+                publishPenaltySnapshot();
                 break;
             case "event":
-                try {
-                    handleEvent(json);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
+                lavalink.getEventDispatcher().dispatch(Long.parseLong(json.getString("guildId")), () -> {
+                    try {
+                        handleEvent(json);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
                 break;
             default:
-                log.warn("Unexpected operation: " + json.getString("op"));
+                log.warn("Unexpected operation: " + op);
                 break;
         }
     }
 
     /**
+     * Messages about a guild are only acted on if its link is on this node. Messages about other guilds, such as from
+     * the player we destroyed when the link moved to another node or from a player left over from a previous session,
+     * must not create a link.
+     *
+     * @return the link, or null if the message should be ignored
+     */
+    @Nullable
+    private Link getLinkOnThisNode(long guild) {
+        Link link = lavalink.getExistingLink(guild);
+        if (link == null || link.getNode(false) != this) {
+            log.debug("Ignoring message for guild {} from {}, which its link is not on", guild, getName());
+            return null;
+        }
+        return link;
+    }
+
+    /**
+     * Invoked through the {@link EventDispatcher}, which may or may not be the read thread of this socket.
+     * <p>
      * Implementation details:
      * The only events extending {@link lavalink.client.player.event.PlayerEvent} produced by the remote server are these:
      * 1. TrackEndEvent
@@ -105,8 +249,9 @@ public class LavalinkSocket extends ReusableWebSocket {
      * 4. WebSocketClosedEvent
      */
     private void handleEvent(JSONObject json) throws IOException {
-        Link link = lavalink.getLink(json.getString("guildId"));
-        LavalinkPlayer player = lavalink.getLink(json.getString("guildId")).getPlayer();
+        Link link = getLinkOnThisNode(Long.parseLong(json.getString("guildId")));
+        if (link == null) return;
+        LavalinkPlayer player = link.getPlayer();
         PlayerEvent event = null;
 
         switch (json.getString("type")) {
@@ -117,6 +262,8 @@ public class LavalinkSocket extends ReusableWebSocket {
                         LavalinkUtil.toAudioTrackWithData(player, json.getString("track")),
                         AudioTrackEndReason.valueOf(json.getString("reason"))
                 );
+                // A replaced track is followed by the next one right away
+                if (((TrackEndEvent) event).getReason() != AudioTrackEndReason.REPLACED) link.onTrackEnd();
                 break;
             case "TrackExceptionEvent":
                 Exception ex;
@@ -162,32 +309,326 @@ public class LavalinkSocket extends ReusableWebSocket {
     @Override
     public void onClose(int code, String reason, boolean remote) {
         available = false;
+        publishPenaltySnapshot();
         reason = reason == null ? "<no reason given>" : reason;
         if (code == 1000) {
             log.info("Connection to " + getRemoteUri() + " closed gracefully with reason: " + reason + " :: Remote=" + remote);
         } else {
             log.warn("Connection to " + getRemoteUri() + " closed unexpectedly with reason " + code + ": " + reason + " :: Remote=" + remote);
         }
+
+        if (disconnectedSince == 0) disconnectedSince = System.nanoTime();
+        scheduleReconnect();
+
+        if (resumeKey != null
+                && lavalink.nodes.contains(this)
+                && !lavalink.getScheduler().isShutdown()) {
+            // Still waiting from an earlier attempt
+            if (awaitingResume.get() != null) return;
+
+            if (resumableSession.compareAndSet(true, false)) {
+                Object token = new Object();
+                awaitingResume.set(token);
+                log.info("Keeping links on {} for up to {} seconds while we try to resume", name, resumeTimeout);
+                resumeTimeoutFuture = lavalink.getScheduler()
+                        .schedule(() -> onResumeTimeout(token), resumeTimeout, TimeUnit.SECONDS);
+                return;
+            }
+            // The wait for this session has timed out already, so there is nothing left to keep
+        }
+
+        // Any earlier wait is over, the links move now
+        awaitingResume.set(null);
+        cancelResumeTimeout();
         lavalink.loadBalancer.onNodeDisconnect(this);
     }
 
+    private void cancelResumeTimeout() {
+        ScheduledFuture<?> future = resumeTimeoutFuture;
+        resumeTimeoutFuture = null;
+        if (future != null) future.cancel(false);
+    }
+
+    private void onResumeTimeout(Object token) {
+        if (!awaitingResume.compareAndSet(token, null)) return;
+        resumeTimeoutFuture = null;
+
+        log.warn("Could not resume session with {} in time, moving links to other nodes", name);
+        try {
+            LongStream moved = lavalink.getLinks().stream()
+                    .filter(link -> link.getNode(false) == this)
+                    .mapToLong(Link::getGuildIdLong);
+            // Guilds moved by an earlier timeout stay on the list until we have connected
+            long[] earlier = migratedGuilds;
+            if (earlier != null) moved = LongStream.concat(Arrays.stream(earlier), moved);
+            migratedGuilds = moved.toArray();
+            lavalink.loadBalancer.onNodeDisconnect(this);
+        } catch (Exception e) {
+            log.error("Caught exception while moving links away from " + name, e);
+        }
+    }
+
+    /**
+     * Gives up on resuming right away, as if the resume timeout had passed
+     */
+    void expireResume() {
+        Object token = awaitingResume.get();
+        if (token == null) return;
+        cancelResumeTimeout();
+        onResumeTimeout(token);
+    }
+
+    /**
+     * Sends the full state of our links on this node again. Must hold the lock of the send queue.
+     */
+    private void resyncLinks() {
+        int count = 0;
+        int discarded = 0;
+        for (Link link : lavalink.getLinks()) {
+            if (link.getNode(false) != this) continue;
+            // Ops queued during the outage are older than the state we send now, a queued seek would rewind the track
+            discarded += sendQueue.removeGuild(link.getGuildIdLong());
+            link.changeNode(this);
+            count++;
+        }
+        log.info("Session with {} was not resumed, set up {} links again and discarded {} of their queued ops",
+                name, count, discarded);
+    }
+
+    private void destroyMigratedPlayers(long[] guilds) {
+        int count = 0;
+        for (long guild : guilds) {
+            Link link = lavalink.getExistingLink(guild);
+            if (link != null && link.getNode(false) == this) continue;
+            send(guild, OutboundOp.DESTROY, MessageEncoder.destroy(Long.toString(guild)));
+            count++;
+        }
+        log.info("Resumed session with {} after links had been moved away, destroyed {} stale players", name, count);
+    }
+
     @Override
     public void onError(Exception ex) {
         if (ex instanceof ConnectException) {
-            log.warn("Failed to connect to " + getRemoteUri() + ", retrying in " + getReconnectInterval()/1000 + " seconds.");
+            log.warn("Failed to connect to " + getRemoteUri() + ": " + ex.getMessage());
             return;
         }
 
         log.error("Caught exception in websocket", ex);
     }
 
+    /**
+     * Sends a message to the node. If we are not connected, it is held until we are.
+     * Messages are never collapsed, see {@link #send(long, OutboundOp, String)}.
+     */
     @Override
     public void send(String text) throws NotYetConnectedException {
-        // Note: If we lose connection we will reconnect and initialize properly
-        if (isOpen()) {
-            super.send(text);
-        } else if (isConnecting()) {
-            log.warn("Attempting to send messages to " + getRemoteUri() + " WHILE connecting. Ignoring.");
+        send(0, OutboundOp.OTHER, text);
+    }
+
+    /**
+     * Sends an op to the node. If we are not connected, the op is held in a bounded queue and sent once we are.
+     * While queued, ops of a guild replace earlier ops of the same guild that they make redundant.
+     * <p>
+     * If a coalescing window is set, pause, seek, volume and filters ops are held for the length of the window and
+     * only the latest of each kind is sent per guild. Other ops of the guild flush these first, so they keep their order.
+     * <p>
+     * Intended for internal use only.
+     *
+     * @param guildId the guild this op is for, ignored for {@link OutboundOp#OTHER}
+     * @param op      what kind of op the message is
+     * @param message the encoded message
+     */
+    public void send(long guildId, @NonNull OutboundOp op, @NonNull String message) {
+        if (coalescingWindowNanos <= 0 || op == OutboundOp.OTHER) {
+            sendOrQueue(guildId, op, message);
+            return;
+        }
+
+        synchronized (coalescer) {
+            if (op.isCoalescable()) {
+                boolean scheduleFlush = coalescer.isEmpty();
+                if (coalescer.offer(guildId, op, message)) {
+                    if (scheduleFlush) {
+                        lavalink.getScheduler().schedule(this::flushCoalesced, coalescingWindowNanos, TimeUnit.NANOSECONDS);
+                    }
+                    return;
+                }
+                // Full, so just send it
+            } else {
+                // Keep order with whatever is still waiting for this guild
+                for (OutboundQueue.Entry entry : coalescer.drain(guildId, op)) {
+                    sendOrQueue(entry.guildId, entry.op, entry.message);
+                }
+            }
+            sendOrQueue(guildId, op, message);
+        }
+    }
+
+    private void flushCoalesced() {
+        try {
+            synchronized (coalescer) {
+                for (OutboundQueue.Entry entry : coalescer.drain()) {
+                    sendOrQueue(entry.guildId, entry.op, entry.message);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Caught exception while sending coalesced ops to " + name, e);
+        }
+    }
+
+    private void sendOrQueue(long guildId, OutboundOp op, String message) {
+        synchronized (sendQueue) {
+            // Anything sent before the queue has been flushed must go after it
+            if (isOpen() && (sendQueue.isEmpty() || resyncing)) {
+                write(message);
+                return;
+            }
+
+            if (!lavalink.nodes.contains(this)) {
+                // We have been removed and won't connect again
+                return;
+            }
+
+            if (!sendQueue.offer(guildId, op, message)) {
+                log.debug("Send queue for {} is full, dropping {} op for guild {}", name, op, guildId);
+            }
+        }
+
+        // We might have opened while queueing
+        if (isOpen()) flushSendQueue();
+    }
+
+    /**
+     * Writes a message to the connection, past the send queue
+     */
+    void write(String message) {
+        super.send(message);
+    }
+
+    private void flushSendQueue() {
+        synchronized (sendQueue) {
+            if (sendQueue.isEmpty() || !isOpen()) return;
+
+            long backlogStart = sendQueue.getBacklogStart();
+            List<OutboundQueue.Entry> entries = sendQueue.drain();
+            int sent = 0;
+            for (OutboundQueue.Entry entry : entries) {
+                if (entry.op != OutboundOp.OTHER) {
+                    // The link may have moved to another node in the meantime
+                    Link link = lavalink.getExistingLink(entry.guildId);
+                    if (link == null || link.getNode(false) != this) continue;
+                }
+                write(entry.message);
+                sent++;
+            }
+
+            lastFlushLatencyNanos = System.nanoTime() - backlogStart;
+            log.info("Flushed {} of {} queued ops to {}, oldest was held for {}ms. {} ops dropped in total",
+                    sent, entries.size(), name, TimeUnit.NANOSECONDS.toMillis(lastFlushLatencyNanos), sendQueue.getDropped());
+        }
+    }
+
+    /**
+     * @return the number of ops waiting for this node to connect
+     */
+    @SuppressWarnings("unused")
+    public int getSendQueueSize() {
+        synchronized (sendQueue) {
+            return sendQueue.size();
+        }
+    }
+
+    /**
+     * @return the total number of ops dropped because the send queue was full
+     */
+    @SuppressWarnings("unused")
+    public long getDroppedMessages() {
+        synchronized (sendQueue) {
+            return sendQueue.getDropped();
+        }
+    }
+
+    /**
+     * @return how long the oldest op was held by the last flush of the send queue, in milliseconds
+     */
+    @SuppressWarnings("unused")
+    public long getLastFlushLatency() {
+        return TimeUnit.NANOSECONDS.toMillis(lastFlushLatencyNanos);
+    }
+
+    /**
+     * Configures session resuming. If the connection to this node is lost, links are kept on this node for up to
+     * {@code timeout} seconds. If we manage to reconnect within that time, the node hands us back our players as they
+     * were, and nothing has to be sent again. Otherwise the links are moved to other nodes as usual.
+     * <p>
+     * The key identifies our session to the node, so it must not be shared with other clients or nodes.
+     *
+     * @param key     the resume key, or null to disable resuming
+     * @param timeout how long the node should keep our players after a disconnect, in seconds
+     * @see Lavalink#setResuming(int)
+     */
+    @SuppressWarnings("WeakerAccess")
+    public void setResuming(@Nullable String key, int timeout) {
+        if (key != null && timeout <= 0) throw new IllegalArgumentException("Timeout must be positive");
+        resumeKey = key;
+        resumeTimeout = key != null ? timeout : 0;
+
+        if (key != null) {
+            headers.put("Resume-Key", key);
+        } else {
+            headers.remove("Resume-Key");
+        }
+
+        if (isOpen()) send(MessageEncoder.configureResuming(key, resumeTimeout));
+    }
+
+    @Nullable
+    @SuppressWarnings("unused")
+    public String getResumeKey() {
+        return resumeKey;
+    }
+
+    /**
+     * @return true if the connection was lost and we are waiting to resume the session, with links still on this node
+     */
+    @SuppressWarnings("unused")
+    public boolean isAwaitingResume() {
+        return awaitingResume.get() != null;
+    }
+
+    /**
+     * @return the total number of ops that were not sent because a later op of the same guild replaced them
+     * within the coalescing window
+     */
+    @SuppressWarnings("unused")
+    public long getCoalescedOps() {
+        synchronized (coalescer) {
+            return coalescer.getSuperseded();
+        }
+    }
+
+    /**
+     * Sets how long pause, seek, volume and filters ops may be held back so that bursts of them can be collapsed.
+     * This is useful if your users can fire these at a high rate, for instance with a volume slider.
+     * Play, stop and destroy ops are never held back.
+     *
+     * @param window the coalescing window, or 0 to send everything right away. Defaults to 0.
+     * @param unit   the unit of {@code window}
+     */
+    @SuppressWarnings("unused")
+    public void setCoalescingWindow(long window, @NonNull TimeUnit unit) {
+        if (window < 0) throw new IllegalArgumentException("Window must not be negative");
+        coalescingWindowNanos = unit.toNanos(window);
+        if (window == 0) flushCoalesced();
+    }
+
+    /**
+     * @param capacity how many ops may be held while this node is not connected. Ops beyond this are dropped.
+     */
+    @SuppressWarnings("unused")
+    public void setSendQueueCapacity(int capacity) {
+        synchronized (sendQueue) {
+            sendQueue.setCapacity(capacity);
         }
     }
 
@@ -197,14 +638,271 @@ public class LavalinkSocket extends ReusableWebSocket {
         return remoteUri;
     }
 
-    void attemptReconnect() {
-        lastReconnectAttempt = System.currentTimeMillis();
-        reconnectsAttempted++;
-        connect();
+    /**
+     * Schedules the next connection attempt according to the {@link ReconnectPolicy}, unless one is already scheduled
+     * or this node has been removed.
+     */
+    private void scheduleReconnect() {
+        if (!lavalink.nodes.contains(this) || lavalink.getScheduler().isShutdown()) return;
+        if (!reconnectScheduled.compareAndSet(false, true)) return;
+
+        int attempt = reconnectsAttempted + 1;
+        long delay = Math.max(0, lavalink.getReconnectPolicy().getDelay(attempt));
+        log.info("Reconnecting to {} in {}ms (attempt {})", name, delay, attempt);
+        try {
+            lavalink.getScheduler().schedule(this::attemptReconnect, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Lavalink is shutting down
+            reconnectScheduled.set(false);
+        }
+    }
+
+    private void attemptReconnect() {
+        reconnectScheduled.set(false);
+        try {
+            if (!lavalink.nodes.contains(this) || !isClosed() || isConnecting()) return;
+
+            reconnectsAttempted++;
+            totalReconnectAttempts.incrementAndGet();
+            connect();
+        } catch (Exception e) {
+            log.error("Caught exception while reconnecting to " + name, e);
+            scheduleReconnect();
+        }
+    }
+
+    /**
+     * @return when we lost the connection, by {@link System#nanoTime()}. 0 if we are connected or never were.
+     */
+    long getDisconnectedSince() {
+        return disconnectedSince;
+    }
+
+    /**
+     * @return the total number of reconnect attempts made to this node
+     */
+    @SuppressWarnings("unused")
+    public long getReconnectAttempts() {
+        return totalReconnectAttempts.get();
+    }
+
+    /**
+     * @return how long it took to get connected again the last time we lost the connection, in milliseconds.
+     * 0 if we never had to reconnect.
+     */
+    @SuppressWarnings("unused")
+    public long getLastTimeToReconnect() {
+        return TimeUnit.NANOSECONDS.toMillis(lastTimeToReconnectNanos);
+    }
+
+    @Override
+    protected void onPong(long rttNanos) {
+        latency.record(rttNanos);
+    }
+
+    /**
+     * @return the round-trip times of the pings we send to this node every few seconds
+     */
+    @NonNull
+    public LatencyTracker getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return the stats received from this node recently, with their moving averages and trends
+     */
+    @NonNull
+    public StatsHistory getStatsHistory() {
+        return statsHistory;
+    }
+
+    void onPlayerAssigned(boolean playing) {
+        assignedPlayers.incrementAndGet();
+        if (playing) playingPlayers.incrementAndGet();
+    }
+
+    void onPlayerUnassigned(boolean playing) {
+        int remaining = assignedPlayers.decrementAndGet();
+        if (playing) playingPlayers.decrementAndGet();
+        if (remaining == 0 && draining) completeDrain();
+    }
+
+    void onPlayingChanged(boolean playing) {
+        if (playing) {
+            playingPlayers.incrementAndGet();
+        } else {
+            playingPlayers.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of our links that use this node
+     */
+    @SuppressWarnings("unused")
+    public int getAssignedPlayers() {
+        return assignedPlayers.get();
+    }
+
+    /**
+     * @return the number of our links on this node that are playing a track and not paused. Unlike
+     * {@link RemoteStats#getPlayingPlayers()}, this does not include players of other clients and is always up to date.
+     */
+    public int getPlayingPlayers() {
+        return playingPlayers.get();
     }
 
-    long getReconnectInterval() {
-        return reconnectsAttempted * 2000 - 2000;
+    /**
+     * Takes this node out of service without interrupting its players, such as for maintenance. It gets no new links,
+     * and its links are moved to other nodes a few at a time: idle and paused links right away, playing links when
+     * their track ends. Once the node has no links left, it may be removed without a failover.
+     * <p>
+     * If no other node is available, new links can't be created until this node is taken back with
+     * {@link #stopDraining()}.
+     *
+     * @return completes when the node has no links left. The same future while this drain is going.
+     */
+    @NonNull
+    @SuppressWarnings("unused")
+    public CompletableFuture<Void> drain() {
+        return drain(0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Like {@link #drain()}, but playing links are moved anyway once the timeout has passed. They continue from the
+     * same position on the new node, after a short gap.
+     *
+     * @param timeout 0 or less to wait for the end of the track
+     */
+    @NonNull
+    @SuppressWarnings("WeakerAccess")
+    public synchronized CompletableFuture<Void> drain(long timeout, @NonNull TimeUnit unit) {
+        if (drainFuture != null) return drainFuture;
+
+        drainFuture = new CompletableFuture<>();
+        drainDeadline = timeout > 0 ? System.nanoTime() + unit.toNanos(timeout) : 0;
+        drainStartPlayers = assignedPlayers.get();
+        draining = true;
+        log.info("Draining {} of {} links", name, drainStartPlayers);
+        if (assignedPlayers.get() == 0) completeDrain();
+        return drainFuture;
+    }
+
+    /**
+     * Takes this node back into service. If it was still draining, the future of the drain is cancelled.
+     */
+    @SuppressWarnings("unused")
+    public synchronized void stopDraining() {
+        if (!draining) return;
+        draining = false;
+        if (drainFuture != null) drainFuture.cancel(false);
+        drainFuture = null;
+        log.info("Stopped draining {}", name);
+    }
+
+    private synchronized void completeDrain() {
+        if (drainFuture == null || drainFuture.isDone() || assignedPlayers.get() != 0) return;
+        log.info("Drained {}", name);
+        drainFuture.complete(null);
+    }
+
+    /**
+     * @return true if this node is being or has been drained, and may not be given new links
+     * @see #drain()
+     */
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * @return the share of the links this node had when the drain started that have been moved, from 0 to 1.
+     * 0 if not draining.
+     */
+    @SuppressWarnings("unused")
+    public double getDrainProgress() {
+        if (!draining) return 0;
+        int start = drainStartPlayers;
+        if (start == 0) return 1;
+        return Math.max(0, Math.min(1, 1 - (double) assignedPlayers.get() / start));
+    }
+
+    /**
+     * @return true if playing links may no longer wait for the end of their track
+     */
+    boolean isDrainOverdue(long now) {
+        long deadline = drainDeadline;
+        return deadline != 0 && now - deadline >= 0;
+    }
+
+    /**
+     * Tags this node with the Discord voice regions it is in or near, such as {@code us-east} or {@code rotterdam}.
+     * The load balancer prefers nodes in the region of a guild's voice server.
+     *
+     * @see LavalinkLoadBalancer#setRegionMismatchPenalty(int)
+     */
+    @SuppressWarnings("unused")
+    public void setRegions(@NonNull String... regions) {
+        Set<String> set = new HashSet<>();
+        for (String region : regions) {
+            set.add(region.toLowerCase(Locale.ROOT));
+        }
+        this.regions = Collections.unmodifiableSet(set);
+    }
+
+    @NonNull
+    @SuppressWarnings("unused")
+    public Set<String> getRegions() {
+        return regions;
+    }
+
+    /**
+     * Sets the measured latency from this node to a Discord voice region. For guilds in a region that this node is not
+     * {@link #setRegions(String...) tagged} with, the latency is used as a penalty instead of the mismatch penalty.
+     *
+     * @param latency in milliseconds, 1 penalty point each. Negative removes the latency.
+     */
+    @SuppressWarnings("unused")
+    public synchronized void setRegionLatency(@NonNull String region, int latency) {
+        Map<String, Integer> map = new HashMap<>(regionLatencies);
+        if (latency < 0) {
+            map.remove(region.toLowerCase(Locale.ROOT));
+        } else {
+            map.put(region.toLowerCase(Locale.ROOT), latency);
+        }
+        regionLatencies = Collections.unmodifiableMap(map);
+    }
+
+    @NonNull
+    @SuppressWarnings("unused")
+    public Map<String, Integer> getRegionLatencies() {
+        return regionLatencies;
+    }
+
+    /**
+     * @param region   of a guild's voice server
+     * @param mismatch penalty for a node that has regions, but not this one
+     * @return 0 if this node is in the region, or has no region information at all
+     */
+    int getRegionPenalty(@NonNull String region, int mismatch) {
+        Set<String> regions = this.regions;
+        if (regions.contains(region)) return 0;
+        Integer latency = regionLatencies.get(region);
+        if (latency != null) return latency;
+        return regions.isEmpty() && regionLatencies.isEmpty() ? 0 : mismatch;
+    }
+
+    void publishPenaltySnapshot() {
+        RemoteStats stats = this.stats;
+        penaltySnapshot = stats == null
+                ? new PenaltySnapshot(null, available)
+                : lavalink.loadBalancer.getScoringModel().score(stats, statsHistory, available);
+    }
+
+    /**
+     * @return the penalties of this node that only depend on its stats and availability
+     */
+    @NonNull
+    public PenaltySnapshot getPenaltySnapshot() {
+        return penaltySnapshot;
     }
 
     @Nullable
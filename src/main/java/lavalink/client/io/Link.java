@@ -18,19 +18,37 @@ import org.slf4j.LoggerFactory;
 abstract public class Link {
 
     private static final Logger log = LoggerFactory.getLogger(Link.class);
-    private JSONObject lastVoiceServerUpdate = null;
-    private String lastSessionId = null;
+    /* The last voice server update, kept as the fields we send on, so that it can be replayed to another node */
+    private String voiceToken = null;
+    private String voiceEndpoint = null;
+    private String voiceSessionId = null;
+    /** Region of the voice server, parsed from its endpoint */
+    @Nullable
+    private volatile String voiceRegion = null;
     private final Lavalink<?> lavalink;
     protected final long guild;
+    /** Rendered once, as it is part of every message we send */
+    private final String guildId;
     private LavalinkPlayer player;
     private volatile String channel = null;
     private volatile LavalinkSocket node = null;
     /* May only be set by setState() */
     private volatile State state = State.NOT_CONNECTED;
+    /** What we are currently counted as in the player counters of the nodes, see {@link #updateNodeCounters()} */
+    private LavalinkSocket countedNode = null;
+    private boolean countedPlaying = false;
+    /** Node we are to move to when the current track ends, see {@link #onTrackEnd()} */
+    @Nullable
+    private volatile LavalinkSocket pendingMove = null;
+    /** When the link was last looked up or changed state, by {@link System#nanoTime()}. See {@link IdleLinkEvictor} */
+    volatile long lastUsed = System.nanoTime();
+    /** Whether the link is in the wheel of the {@link IdleLinkEvictor}, guarded by it */
+    volatile boolean evictionScheduled = false;
 
     protected Link(Lavalink<?> lavalink, String guildId) {
         this.lavalink = lavalink;
         this.guild = Long.parseLong(guildId);
+        this.guildId = Long.toString(guild);
     }
 
     public LavalinkPlayer getPlayer() {
@@ -41,6 +59,15 @@ abstract public class Link {
         return player;
     }
 
+    /**
+     * @return the player, or null if it has not been created yet
+     */
+    @SuppressWarnings("WeakerAccess")
+    @Nullable
+    public LavalinkPlayer getExistingPlayer() {
+        return player;
+    }
+
     public Lavalink<?> getLavalink() {
         return lavalink;
     }
@@ -55,10 +82,11 @@ abstract public class Link {
     @SuppressWarnings("unused")
     public void resetPlayer() {
         player = null;
+        updateNodeCounters();
     }
 
     public String getGuildId() {
-        return Long.toString(guild);
+        return guildId;
     }
 
     public long getGuildIdLong() {
@@ -76,10 +104,12 @@ abstract public class Link {
     }
 
     public void changeNode(LavalinkSocket newNode) {
+        pendingMove = null;
         node = newNode;
-        if (lastVoiceServerUpdate != null) {
-            onVoiceServerUpdate(getLastVoiceServerUpdate(), lastSessionId);
-            player.onNodeChange();
+        updateNodeCounters();
+        if (voiceToken != null) {
+            onVoiceServerUpdate(voiceToken, voiceEndpoint, voiceSessionId);
+            if (player != null) player.onNodeChange();
         }
     }
 
@@ -90,11 +120,9 @@ abstract public class Link {
         setState(State.NOT_CONNECTED);
         LavalinkSocket socket = getNode(false);
         if (socket != null && state != State.DESTROYING && state != State.DESTROYED) {
-            socket.send(new JSONObject()
-                    .put("op", "destroy")
-                    .put("guildId", Long.toString(guild))
-                    .toString());
+            socket.send(guild, OutboundOp.DESTROY, MessageEncoder.destroy(guildId));
             node = null;
+            updateNodeCounters();
         }
     }
 
@@ -116,13 +144,11 @@ abstract public class Link {
             }
         }
         setState(State.DESTROYED);
+        updateNodeCounters();
         lavalink.removeDestroyedLink(this);
         LavalinkSocket socket = getNode(false);
         if (socket != null) {
-            socket.send(new JSONObject()
-                    .put("op", "destroy")
-                    .put("guildId", Long.toString(guild))
-                    .toString());
+            socket.send(guild, OutboundOp.DESTROY, MessageEncoder.destroy(guildId));
         }
     }
 
@@ -148,11 +174,38 @@ abstract public class Link {
     public LavalinkSocket getNode(boolean selectIfAbsent) {
         if (selectIfAbsent && node == null) {
             node = lavalink.loadBalancer.determineBestSocket(guild);
+            updateNodeCounters();
             if (player != null) player.onNodeChange();
         }
         return node;
     }
 
+    /**
+     * Invoked by {@link LavalinkPlayer} when it starts or stops playing, or is paused or resumed
+     */
+    public void onPlayerStateChange() {
+        updateNodeCounters();
+    }
+
+    /**
+     * Moves our contribution to the player counters of the nodes, so that the load balancer does not have to count
+     * the players of every link on every node selection.
+     */
+    private synchronized void updateNodeCounters() {
+        LavalinkSocket node = state == State.DESTROYED ? null : this.node;
+        LavalinkPlayer player = this.player;
+        boolean playing = node != null && player != null && player.getPlayingTrack() != null && !player.isPaused();
+
+        if (node != countedNode) {
+            if (countedNode != null) countedNode.onPlayerUnassigned(countedPlaying);
+            if (node != null) node.onPlayerAssigned(playing);
+        } else if (node != null && playing != countedPlaying) {
+            node.onPlayingChanged(playing);
+        }
+        countedNode = node;
+        countedPlaying = playing;
+    }
+
     /**
      * @return The channel we are currently connect to
      */
@@ -188,6 +241,8 @@ abstract public class Link {
         }
         log.debug("Link {} changed state from {} to {}", this, this.state, state);
         this.state = state;
+        lastUsed = System.nanoTime();
+        if (state == State.NOT_CONNECTED) lavalink.idleLinkEvictor.onIdle(this);
     }
 
     /**
@@ -208,23 +263,140 @@ abstract public class Link {
     }
 
     public void onVoiceServerUpdate(JSONObject json, String sessionId) {
-        lastVoiceServerUpdate = json;
-        lastSessionId = sessionId;
+        onVoiceServerUpdate(json.getString("token"), json.optString("endpoint", null), sessionId);
+    }
 
-        // Send WS message
-        JSONObject out = new JSONObject();
-        out.put("op", "voiceUpdate");
-        out.put("sessionId", sessionId);
-        out.put("guildId", Long.toString(guild));
-        out.put("event", lastVoiceServerUpdate);
+    private void onVoiceServerUpdate(String token, @Nullable String endpoint, String sessionId) {
+        voiceToken = token;
+        voiceEndpoint = endpoint;
+        voiceSessionId = sessionId;
 
+        String region = VoiceRegions.fromEndpoint(endpoint);
+        boolean regionChanged = region != null && !region.equals(voiceRegion);
+        voiceRegion = region;
+        // Moving replays this voice update to the new node
+        if (regionChanged && node != null && moveToRegion(region)) return;
+
+        // Send WS message
         //noinspection ConstantConditions
-        getNode(true).send(out.toString());
+        getNode(true).send(guild, OutboundOp.VOICE_UPDATE, MessageEncoder.voiceUpdate(guildId, sessionId, token, endpoint));
         setState(Link.State.CONNECTED);
     }
 
+    /**
+     * Audio is interrupted anyway while the voice server changes, so this is a good moment to move to a node that is
+     * closer to the new voice server.
+     *
+     * @return true if we moved to another node
+     */
+    private boolean moveToRegion(String region) {
+        LavalinkSocket current = node;
+        LavalinkSocket preferred;
+        try {
+            preferred = lavalink.loadBalancer.determineBestSocket(guild, region);
+        } catch (IllegalStateException e) {
+            return false;
+        }
+        LavalinkLoadBalancer loadBalancer = lavalink.loadBalancer;
+        if (preferred == current
+                || loadBalancer.getRegionPenalty(preferred, region) >= loadBalancer.getRegionPenalty(current, region)) {
+            return false;
+        }
+
+        log.debug("Moving link {} from {} to {} for voice region {}", this, current.getName(), preferred.getName(), region);
+        moveNode(preferred);
+        return true;
+    }
+
+    /**
+     * Moves this link to another node while the current node is still up, destroying the player on the current node.
+     */
+    void moveNode(@NonNull LavalinkSocket newNode) {
+        LavalinkSocket current = node;
+        if (current == newNode) return;
+        if (current != null) current.send(guild, OutboundOp.DESTROY, MessageEncoder.destroy(guildId));
+        changeNode(newNode);
+    }
+
+    /**
+     * Schedules a move to another node for when the current track ends, so that the move can't be heard.
+     */
+    void setPendingMove(@Nullable LavalinkSocket pendingMove) {
+        this.pendingMove = pendingMove;
+    }
+
+    @Nullable
+    LavalinkSocket getPendingMove() {
+        return pendingMove;
+    }
+
+    /**
+     * Invoked by {@link LavalinkSocket} when a track has ended on our node, before the event is passed on. Makes a
+     * pending move, or leaves a draining node, without replaying the track that just ended, so that the next track is
+     * played on the new node.
+     */
+    void onTrackEnd() {
+        LavalinkSocket target = pendingMove;
+        pendingMove = null;
+        LavalinkSocket current = node;
+        if (current == null || state != State.CONNECTED) return;
+
+        // The target may have started draining in the meantime
+        if (target != null && target.isDraining()) target = null;
+        boolean drain = current.isDraining();
+        if (drain && target == null) {
+            try {
+                target = lavalink.loadBalancer.determineBestSocket(guild, voiceRegion);
+            } catch (IllegalStateException e) {
+                return;
+            }
+        }
+        if (target == null || current == target || !target.isAvailable()) return;
+
+        log.debug("Moving link {} from {} to {} at the end of its track", this, current.getName(), target.getName());
+        current.send(guild, OutboundOp.DESTROY, MessageEncoder.destroy(guildId));
+        node = target;
+        updateNodeCounters();
+        if (voiceToken != null) onVoiceServerUpdate(voiceToken, voiceEndpoint, voiceSessionId);
+        // The track is not replayed, but the next one should have our filters
+        if (player != null) player.sendFilters();
+        lavalink.loadBalancer.onTrackEndMove(drain);
+    }
+
+    /**
+     * @return the region of our voice server, parsed from its endpoint, or null if not known
+     */
+    @Nullable
+    public String getVoiceRegion() {
+        return voiceRegion;
+    }
+
+    /**
+     * @return the endpoint of our voice server, or null if not known
+     */
+    @SuppressWarnings("unused")
+    @Nullable
+    public String getVoiceEndpoint() {
+        return voiceEndpoint;
+    }
+
+    /**
+     * Links no longer keep the voice server update they received, only the fields that are sent to Lavalink. This is
+     * therefore not the received payload: it is built from the token, guild id and endpoint on every call, and any
+     * other fields of the payload are gone.
+     *
+     * @return the fields of the last voice server update that are sent to Lavalink, or null if there was none
+     * @deprecated use {@link #getVoiceEndpoint()} or {@link #getVoiceRegion()} instead
+     */
+    @Deprecated
+    @Nullable
     public JSONObject getLastVoiceServerUpdate() {
-        return lastVoiceServerUpdate;
+        String token = voiceToken;
+        if (token == null) return null;
+        return new JSONObject()
+                .put("token", token)
+                .put("guild_id", guildId)
+                .put("endpoint", voiceEndpoint != null ? voiceEndpoint : JSONObject.NULL);
     }
 
     /**
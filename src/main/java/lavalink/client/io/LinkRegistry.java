@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * The links of a {@link Lavalink}, by guild id. Every message from a node is looked up here, so keys are kept as
+ * primitive longs and lookups neither box nor lock.
+ * <p>
+ * The links are spread over segments, each an open addressing table with linear probing that is guarded by a
+ * {@link StampedLock}. Lookups read the table optimistically and only take the read lock if a write got in between.
+ * Writes are rare, as they only happen when a link is created or destroyed.
+ */
+final class LinkRegistry<T extends Link> {
+
+    private static final int SEGMENTS = 16;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final Collection<T> values = new Values();
+    /** Told about every link that is removed, whether through {@link #remove(long)} or an iterator */
+    private final Consumer<? super T> removalListener;
+
+    LinkRegistry() {
+        this(link -> {});
+    }
+
+    LinkRegistry(@NonNull Consumer<? super T> removalListener) {
+        this.removalListener = removalListener;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /** Snowflakes share their high bits, and their low bits are mostly a sequence number */
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private Segment segment(int hash) {
+        return segments[(hash >>> 28) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * @return the link, or null if there is none. Never creates one.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    T get(long guild) {
+        int hash = hash(guild);
+        return (T) segment(hash).get(guild, hash);
+    }
+
+    /**
+     * Adds the link unless there already is one for the guild. Links are built by the caller, so that no lock is held
+     * while code outside of this class runs.
+     *
+     * @return the link that is in the registry, which is not the given one if another thread got in first
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    T putIfAbsent(long guild, @NonNull T link) {
+        int hash = hash(guild);
+        return (T) segment(hash).putIfAbsent(guild, hash, link);
+    }
+
+    /**
+     * @return the removed link, or null if there was none
+     */
+    @Nullable
+    T remove(long guild) {
+        return remove(guild, null);
+    }
+
+    /**
+     * @param expected the link to remove, or null to remove whichever link the guild has
+     * @return the removed link, or null if there was none
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private T remove(long guild, @Nullable T expected) {
+        int hash = hash(guild);
+        T removed = (T) segment(hash).remove(guild, hash, expected);
+        if (removed != null) removalListener.accept(removed);
+        return removed;
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return a live view of the links. Iteration is weakly consistent, like that of a
+     * {@link java.util.concurrent.ConcurrentHashMap}: each segment is copied when the iterator reaches it. Removing
+     * through the iterator removes the link, unless the guild has a different link by then.
+     */
+    @NonNull
+    Collection<T> values() {
+        return values;
+    }
+
+    private final class Values extends AbstractCollection<T> {
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+                private int segment = 0;
+                private Iterator<Object> current = null;
+                @Nullable
+                private T last = null;
+
+                @Override
+                public boolean hasNext() {
+                    while (current == null || !current.hasNext()) {
+                        if (segment == SEGMENTS) return false;
+                        current = segments[segment++].snapshot().iterator();
+                    }
+                    return true;
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    @SuppressWarnings("unchecked")
+                    T link = (T) current.next();
+                    last = link;
+                    return link;
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) throw new IllegalStateException();
+                    LinkRegistry.this.remove(last.getGuildIdLong(), last);
+                    last = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return LinkRegistry.this.size();
+        }
+    }
+
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+        /** An empty slot has a null value, so that any key can be used */
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private Object[] values = new Object[INITIAL_CAPACITY];
+        private int size = 0;
+
+        Object get(long key, int hash) {
+            long stamp = lock.tryOptimisticRead();
+            Object value = find(key, hash);
+            if (lock.validate(stamp)) return value;
+
+            stamp = lock.readLock();
+            try {
+                return find(key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * May run concurrently with a write, in which case the result is discarded. Must therefore not fail on a table
+         * that is being changed.
+         */
+        private Object find(long key, int hash) {
+            long[] keys = this.keys;
+            Object[] values = this.values;
+            int mask = Math.min(keys.length, values.length) - 1;
+            int index = hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                Object value = values[index];
+                if (value == null) return null;
+                if (keys[index] == key) return value;
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        Object putIfAbsent(long key, int hash, Object value) {
+            long stamp = lock.writeLock();
+            try {
+                Object existing = find(key, hash);
+                if (existing != null) return existing;
+                if (size + 1 > keys.length / 2) resize();
+                insert(key, hash, value);
+                size++;
+                return value;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void insert(long key, int hash, Object value) {
+            int mask = keys.length - 1;
+            int index = hash & mask;
+            while (values[index] != null) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = value;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Object[oldValues.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) insert(oldKeys[i], hash(oldKeys[i]), oldValues[i]);
+            }
+        }
+
+        Object remove(long key, int hash, @Nullable Object expected) {
+            long stamp = lock.writeLock();
+            try {
+                int mask = keys.length - 1;
+                int index = hash & mask;
+                while (values[index] != null && keys[index] != key) {
+                    index = (index + 1) & mask;
+                }
+                Object removed = values[index];
+                if (removed == null || (expected != null && removed != expected)) return null;
+                values[index] = null;
+                size--;
+
+                // Shift later entries of the probe sequence back, so that lookups don't stop at the gap
+                int gap = index;
+                int next = (gap + 1) & mask;
+                while (values[next] != null) {
+                    int home = hash(keys[next]) & mask;
+                    // Move the entry if the gap lies cyclically between its home slot and where it is now
+                    if (((next - home) & mask) >= ((next - gap) & mask)) {
+                        keys[gap] = keys[next];
+                        values[gap] = values[next];
+                        values[next] = null;
+                        gap = next;
+                    }
+                    next = (next + 1) & mask;
+                }
+                return removed;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        List<Object> snapshot() {
+            long stamp = lock.readLock();
+            try {
+                List<Object> result = new ArrayList<>(size);
+                for (Object value : values) {
+                    if (value != null) result.add(value);
+                }
+                return result;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import lavalink.client.io.filters.*;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Writes the ops we send to a Lavalink node.
+ * <p>
+ * Messages are written straight into a per-thread {@link StringBuilder} that is reused between calls, so no
+ * intermediate {@link JSONObject} is built. The only allocation per op is the resulting String, which is what the
+ * WebSocket client wants to send. Field names are constant fragments and guild ids are expected to be pre-rendered,
+ * see {@link Link#getGuildId()}.
+ * <p>
+ * Intended for internal use only.
+ */
+public final class MessageEncoder {
+
+    private static final int INITIAL_CAPACITY = 256;
+    /** Buffers that have grown beyond this, for instance from a very long track, are not kept around */
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_CAPACITY));
+
+    private static final String OP_PLAY = "{\"op\":\"play\",\"guildId\":\"";
+    private static final String OP_STOP = "{\"op\":\"stop\",\"guildId\":\"";
+    private static final String OP_PAUSE = "{\"op\":\"pause\",\"guildId\":\"";
+    private static final String OP_SEEK = "{\"op\":\"seek\",\"guildId\":\"";
+    private static final String OP_VOLUME = "{\"op\":\"volume\",\"guildId\":\"";
+    private static final String OP_FILTERS = "{\"op\":\"filters\",\"guildId\":\"";
+    private static final String OP_VOICE_UPDATE = "{\"op\":\"voiceUpdate\",\"guildId\":\"";
+    private static final String OP_DESTROY = "{\"op\":\"destroy\",\"guildId\":\"";
+    private static final String OP_CONFIGURE_RESUMING = "{\"op\":\"configureResuming\",\"key\":";
+
+    private static final String FIELD_TRACK = "\",\"track\":";
+    private static final String FIELD_START_TIME = ",\"startTime\":";
+    private static final String FIELD_END_TIME = ",\"endTime\":";
+    private static final String FIELD_PAUSE = ",\"pause\":";
+    private static final String FIELD_VOLUME = ",\"volume\":";
+    private static final String FIELD_POSITION = ",\"position\":";
+    private static final String FIELD_SESSION_ID = ",\"sessionId\":";
+    private static final String FIELD_EVENT = ",\"event\":";
+    private static final String FIELD_TIMEOUT = ",\"timeout\":";
+    private static final String EVENT_TOKEN = "{\"token\":";
+    private static final String EVENT_GUILD_ID = ",\"guild_id\":\"";
+    private static final String EVENT_ENDPOINT = ",\"endpoint\":";
+    /** Closes the guild id string for ops that have fields after it */
+    private static final String GUILD_END = "\"";
+    private static final String GUILD_END_OBJECT = "\"}";
+
+    private MessageEncoder() {
+    }
+
+    @NonNull
+    public static String play(@NonNull String guildId, @NonNull String track, long startTime, boolean pause, int volume) {
+        return play(guildId, track, startTime, false, 0, pause, volume);
+    }
+
+    @NonNull
+    public static String play(@NonNull String guildId, @NonNull String track, long startTime, long endTime,
+                              boolean pause, int volume) {
+        return play(guildId, track, startTime, true, endTime, pause, volume);
+    }
+
+    private static String play(String guildId, String track, long startTime, boolean hasEndTime, long endTime,
+                               boolean pause, int volume) {
+        StringBuilder sb = begin(OP_PLAY, guildId);
+        sb.append(FIELD_TRACK);
+        appendString(sb, track);
+        sb.append(FIELD_START_TIME).append(startTime);
+        if (hasEndTime) sb.append(FIELD_END_TIME).append(endTime);
+        sb.append(FIELD_PAUSE).append(pause);
+        sb.append(FIELD_VOLUME).append(volume);
+        return finish(sb);
+    }
+
+    @NonNull
+    public static String stop(@NonNull String guildId) {
+        return finish(begin(OP_STOP, guildId), GUILD_END_OBJECT);
+    }
+
+    @NonNull
+    public static String pause(@NonNull String guildId, boolean pause) {
+        StringBuilder sb = begin(OP_PAUSE, guildId).append(GUILD_END);
+        sb.append(FIELD_PAUSE).append(pause);
+        return finish(sb);
+    }
+
+    @NonNull
+    public static String seek(@NonNull String guildId, long position) {
+        StringBuilder sb = begin(OP_SEEK, guildId).append(GUILD_END);
+        sb.append(FIELD_POSITION).append(position);
+        return finish(sb);
+    }
+
+    @NonNull
+    public static String volume(@NonNull String guildId, int volume) {
+        StringBuilder sb = begin(OP_VOLUME, guildId).append(GUILD_END);
+        sb.append(FIELD_VOLUME).append(volume);
+        return finish(sb);
+    }
+
+    @NonNull
+    public static String destroy(@NonNull String guildId) {
+        return finish(begin(OP_DESTROY, guildId), GUILD_END_OBJECT);
+    }
+
+    /**
+     * @param token    of the voice server update
+     * @param endpoint of the voice server update, null if the voice server is not available
+     */
+    @NonNull
+    public static String voiceUpdate(@NonNull String guildId, @Nullable String sessionId, @Nullable String token,
+                                     @Nullable String endpoint) {
+        StringBuilder sb = begin(OP_VOICE_UPDATE, guildId).append(GUILD_END);
+        appendSessionId(sb, sessionId);
+        sb.append(FIELD_EVENT).append(EVENT_TOKEN);
+        appendString(sb, token);
+        sb.append(EVENT_GUILD_ID).append(guildId).append(GUILD_END).append(EVENT_ENDPOINT);
+        appendString(sb, endpoint);
+        return finish(sb, "}}");
+    }
+
+    /**
+     * The session id is left out while we do not have one, like {@link JSONObject#put(String, Object)} does
+     */
+    private static void appendSessionId(StringBuilder sb, @Nullable String sessionId) {
+        if (sessionId == null) return;
+        sb.append(FIELD_SESSION_ID);
+        appendString(sb, sessionId);
+    }
+
+    /**
+     * @param key     the key to resume with, or null to disable resuming
+     * @param timeout seconds the node should keep our players after we disconnect
+     */
+    @NonNull
+    public static String configureResuming(@Nullable String key, int timeout) {
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        sb.append(OP_CONFIGURE_RESUMING);
+        appendString(sb, key);
+        sb.append(FIELD_TIMEOUT).append(timeout);
+        return finish(sb);
+    }
+
+    @NonNull
+    public static String filters(@NonNull String guildId, @NonNull Filters filters) {
+        StringBuilder sb = begin(OP_FILTERS, guildId).append(GUILD_END);
+
+        // Volume
+        sb.append(FIELD_VOLUME);
+        appendFloat(sb, filters.getVolume());
+
+        // Equalizer, without creating the bands if there are none
+        if (filters.hasBands()) {
+            boolean first = true;
+            int band = -1;
+            for (float gain : filters.getBands()) {
+                band++;
+                if (gain == 0.0f) continue;
+                sb.append(first ? ",\"equalizer\":[" : ",");
+                sb.append("{\"band\":").append(band).append(",\"gain\":");
+                appendFloat(sb, gain);
+                sb.append('}');
+                first = false;
+            }
+            if (!first) sb.append(']');
+        }
+
+        Timescale timescale = filters.getTimescale();
+        if (timescale != null) {
+            sb.append(",\"timescale\":{\"speed\":");
+            appendFloat(sb, timescale.getSpeed());
+            sb.append(",\"pitch\":");
+            appendFloat(sb, timescale.getPitch());
+            sb.append(",\"rate\":");
+            appendFloat(sb, timescale.getRate());
+            sb.append('}');
+        }
+
+        Karaoke karaoke = filters.getKaraoke();
+        if (karaoke != null) {
+            sb.append(",\"karaoke\":{\"level\":");
+            appendFloat(sb, karaoke.getLevel());
+            sb.append(",\"monoLevel\":");
+            appendFloat(sb, karaoke.getMonoLevel());
+            sb.append(",\"filterBand\":");
+            appendFloat(sb, karaoke.getFilterBand());
+            sb.append(",\"filterWidth\":");
+            appendFloat(sb, karaoke.getFilterWidth());
+            sb.append('}');
+        }
+
+        Tremolo tremolo = filters.getTremolo();
+        if (tremolo != null) {
+            sb.append(",\"tremolo\":{\"frequency\":");
+            appendFloat(sb, tremolo.getFrequency());
+            sb.append(",\"depth\":");
+            appendFloat(sb, tremolo.getDepth());
+            sb.append('}');
+        }
+
+        Vibrato vibrato = filters.getVibrato();
+        if (vibrato != null) {
+            sb.append(",\"vibrato\":{\"frequency\":");
+            appendFloat(sb, vibrato.getFrequency());
+            sb.append(",\"depth\":");
+            appendFloat(sb, vibrato.getDepth());
+            sb.append('}');
+        }
+
+        Rotation rotation = filters.getRotation();
+        if (rotation != null) {
+            sb.append(",\"rotation\":{\"rotationHz\":");
+            appendFloat(sb, rotation.getFrequency());
+            sb.append('}');
+        }
+
+        Distortion distortion = filters.getDistortion();
+        if (distortion != null) {
+            sb.append(",\"distortion\":{\"sinOffset\":");
+            appendFloat(sb, distortion.getSinOffset());
+            sb.append(",\"sinScale\":");
+            appendFloat(sb, distortion.getSinScale());
+            sb.append(",\"cosOffset\":");
+            appendFloat(sb, distortion.getCosOffset());
+            sb.append(",\"cosScale\":");
+            appendFloat(sb, distortion.getCosScale());
+            sb.append(",\"tanOffset\":");
+            appendFloat(sb, distortion.getTanOffset());
+            sb.append(",\"tanScale\":");
+            appendFloat(sb, distortion.getTanScale());
+            sb.append(",\"offset\":");
+            appendFloat(sb, distortion.getOffset());
+            sb.append(",\"scale\":");
+            appendFloat(sb, distortion.getScale());
+            sb.append('}');
+        }
+
+        ChannelMix channelMix = filters.getChannelMix();
+        if (channelMix != null) {
+            sb.append(",\"channelMix\":{\"leftToLeft\":");
+            appendFloat(sb, channelMix.getLeftToLeft());
+            sb.append(",\"leftToRight\":");
+            appendFloat(sb, channelMix.getLeftToRight());
+            sb.append(",\"rightToLeft\":");
+            appendFloat(sb, channelMix.getRightToLeft());
+            sb.append(",\"rightToRight\":");
+            appendFloat(sb, channelMix.getRightToRight());
+            sb.append('}');
+        }
+
+        LowPass lowPass = filters.getLowPass();
+        if (lowPass != null) {
+            sb.append(",\"lowPass\":{\"smoothing\":");
+            appendFloat(sb, lowPass.getSmoothing());
+            sb.append('}');
+        }
+
+        return finish(sb);
+    }
+
+    private static StringBuilder begin(String opPrefix, String guildId) {
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        return sb.append(opPrefix).append(guildId);
+    }
+
+    private static String finish(StringBuilder sb) {
+        return finish(sb, "}");
+    }
+
+    private static String finish(StringBuilder sb, String suffix) {
+        String result = sb.append(suffix).toString();
+        if (sb.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFER.set(new StringBuilder(INITIAL_CAPACITY));
+        } else {
+            sb.setLength(0);
+        }
+        return result;
+    }
+
+    private static void appendFloat(StringBuilder sb, float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            throw new JSONException("JSON does not allow non-finite numbers.");
+        }
+        sb.append(value);
+    }
+
+    /**
+     * Appends a quoted JSON string, or null
+     */
+    static void appendString(StringBuilder sb, @Nullable String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append("\\u00");
+                        sb.append(Character.forDigit(c >> 4, 16));
+                        sb.append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import lavalink.client.player.LavalinkPlayer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves links to their new node at a limited rate per node, so that a surviving node is not hit by thousands of
+ * voice updates and track loads in the same second. Each target node has a token bucket. Links that are playing are
+ * moved before links that are paused or idle, as their listeners notice the outage.
+ * <p>
+ * A link keeps pointing at its lost node until it is moved. Ops sent for it in the meantime end up in the send queue
+ * of that node and are discarded, but the state of the player is replayed to the new node once the link is moved.
+ *
+ * @see LavalinkLoadBalancer#setMigrationRate(double, int)
+ */
+final class MigrationPacer {
+
+    private static final Logger log = LoggerFactory.getLogger(MigrationPacer.class);
+    private static final long MIN_DELAY_MS = 10;
+
+    private final Lavalink<?> lavalink;
+    /** Guarded by this */
+    private final Map<LavalinkSocket, NodeQueue> queues = new LinkedHashMap<>();
+    /** Guarded by this */
+    private boolean drainScheduled = false;
+    private volatile double rate;
+    private volatile int burst;
+    private final AtomicLong migrated = new AtomicLong(0);
+    private final AtomicLong outageNanos = new AtomicLong(0);
+
+    MigrationPacer(Lavalink<?> lavalink, double rate, int burst) {
+        this.lavalink = lavalink;
+        setRate(rate, burst);
+    }
+
+    void setRate(double rate, int burst) {
+        if (rate > 0 && burst < 1) throw new IllegalArgumentException("Burst must be at least 1");
+        this.rate = rate;
+        this.burst = burst;
+    }
+
+    boolean isPaced() {
+        return rate > 0;
+    }
+
+    void submit(@NonNull Pending pending, @NonNull LavalinkSocket to) {
+        if (!isPaced()) {
+            move(pending, to);
+            return;
+        }
+
+        synchronized (this) {
+            NodeQueue queue = queues.computeIfAbsent(to, node -> new NodeQueue(burst));
+            if (isPlaying(pending.link)) {
+                queue.playing.add(pending);
+            } else {
+                queue.idle.add(pending);
+            }
+        }
+        scheduleDrain(0);
+    }
+
+    /**
+     * Takes back the links that were waiting to be moved to a node, because that node has been lost as well
+     */
+    synchronized List<Pending> cancel(LavalinkSocket to) {
+        NodeQueue queue = queues.remove(to);
+        List<Pending> result = new ArrayList<>();
+        if (queue == null) return result;
+        result.addAll(queue.playing);
+        result.addAll(queue.idle);
+        return result;
+    }
+
+    private void scheduleDrain(long delayMs) {
+        synchronized (this) {
+            if (drainScheduled) return;
+            drainScheduled = true;
+        }
+
+        try {
+            lavalink.getScheduler().schedule(this::drain, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // We are shutting down
+            synchronized (this) {
+                drainScheduled = false;
+            }
+        }
+    }
+
+    private void drain() {
+        List<Pending> due = new ArrayList<>();
+        List<LavalinkSocket> targets = new ArrayList<>();
+        double rate = this.rate;
+        boolean paced = rate > 0;
+        boolean remaining = false;
+        synchronized (this) {
+            drainScheduled = false;
+            long now = System.nanoTime();
+            Iterator<Map.Entry<LavalinkSocket, NodeQueue>> iterator = queues.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<LavalinkSocket, NodeQueue> entry = iterator.next();
+                NodeQueue queue = entry.getValue();
+                if (paced) queue.refill(now, rate, burst);
+                while ((!paced || queue.tokens >= 1) && queue.size() > 0) {
+                    queue.tokens--;
+                    due.add(queue.playing.isEmpty() ? queue.idle.poll() : queue.playing.poll());
+                    targets.add(entry.getKey());
+                }
+                // An empty queue is kept until its bucket is full again, or the next link would get a fresh burst
+                if (queue.size() == 0 && (!paced || queue.tokens >= burst)) iterator.remove();
+                if (queue.size() > 0) remaining = true;
+            }
+        }
+
+        for (int i = 0; i < due.size(); i++) {
+            try {
+                move(due.get(i), targets.get(i));
+            } catch (Exception e) {
+                log.error("Caught exception while moving link " + due.get(i).link.getGuildId(), e);
+            }
+        }
+
+        if (remaining) scheduleDrain(paced ? Math.max(MIN_DELAY_MS, (long) (1000 / rate)) : 0);
+    }
+
+    private void move(Pending pending, LavalinkSocket to) {
+        Link link = pending.link;
+        // The link may have been destroyed or moved by someone else while it was waiting
+        if (link.getState() == Link.State.DESTROYED || link.getNode(false) != pending.from) return;
+
+        link.changeNode(to);
+        migrated.incrementAndGet();
+        outageNanos.addAndGet(System.nanoTime() - pending.since);
+    }
+
+    private static boolean isPlaying(Link link) {
+        LavalinkPlayer player = link.getExistingPlayer();
+        return player != null && player.getPlayingTrack() != null && !player.isPaused();
+    }
+
+    synchronized int getBacklog(LavalinkSocket to) {
+        NodeQueue queue = queues.get(to);
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * @return how long the link that has been waiting the longest to be moved to a node has been without a node,
+     * in nanoseconds. 0 if none are waiting.
+     */
+    synchronized long getOldestPending(LavalinkSocket to) {
+        NodeQueue queue = queues.get(to);
+        if (queue == null) return 0;
+        long oldest = Long.MAX_VALUE;
+        if (!queue.playing.isEmpty()) oldest = queue.playing.peek().since;
+        if (!queue.idle.isEmpty()) oldest = Math.min(oldest, queue.idle.peek().since);
+        return oldest == Long.MAX_VALUE ? 0 : System.nanoTime() - oldest;
+    }
+
+    long getMigrated() {
+        return migrated.get();
+    }
+
+    long getOutageNanos() {
+        return outageNanos.get();
+    }
+
+    static final class Pending {
+        final Link link;
+        final LavalinkSocket from;
+        /** When the link lost its node, by {@link System#nanoTime()} */
+        final long since;
+
+        Pending(Link link, LavalinkSocket from, long since) {
+            this.link = link;
+            this.from = from;
+            this.since = since;
+        }
+    }
+
+    private static final class NodeQueue {
+        private final ArrayDeque<Pending> playing = new ArrayDeque<>();
+        private final ArrayDeque<Pending> idle = new ArrayDeque<>();
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+
+        private NodeQueue(int burst) {
+            tokens = burst;
+        }
+
+        private void refill(long now, double rate, int burst) {
+            tokens = Math.min(burst, tokens + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+            lastRefill = now;
+        }
+
+        private int size() {
+            return playing.size() + idle.size();
+        }
+    }
+
+}
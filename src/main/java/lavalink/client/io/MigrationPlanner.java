@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Assigns all links of a lost node to the remaining nodes in one go.
+ * <p>
+ * Node stats only change with the next stats message, so picking the best node for each link separately would send
+ * every link to the same node. Instead, every link assigned to a node counts as one more playing player on that node
+ * for the rest of the plan, weighed like the scoring model weighs the node's players. Links therefore fill up the
+ * nodes with the lowest penalties first and then spread out evenly, in proportion to the size of the nodes.
+ */
+final class MigrationPlanner {
+
+    private MigrationPlanner() {
+    }
+
+    /**
+     * Same as {@link #plan(int, int[], double[], int[], IntBinaryOperator)}, with every link worth one penalty point
+     */
+    static int[] plan(int links, int[] penalties, int[] capacities, @Nullable IntBinaryOperator linkPenalty) {
+        return plan(links, penalties, null, capacities, linkPenalty);
+    }
+
+    /**
+     * @param links        the number of links to assign
+     * @param penalties    the current total penalty of each node
+     * @param weights      the penalty of each link assigned to a node, see {@link PenaltySnapshot#getPlayerWeight()}.
+     *                     May be null, for a weight of 1.
+     * @param capacities   how many more links each node may take. Once all nodes are full, the remaining links are
+     *                     assigned as if there were no limits.
+     * @param linkPenalty  penalty of assigning a link (first operand) to a node (second operand), on top of the
+     *                     node's own penalty. May be null.
+     * @return the index of the node for each link
+     */
+    static int[] plan(int links, int[] penalties, @Nullable double[] weights, int[] capacities,
+                      @Nullable IntBinaryOperator linkPenalty) {
+        if (penalties.length != capacities.length) throw new IllegalArgumentException("Expected a capacity per node");
+        if (weights != null && weights.length != penalties.length) throw new IllegalArgumentException("Expected a weight per node");
+        if (penalties.length == 0) throw new IllegalArgumentException("No nodes to assign to");
+
+        int[] assigned = new int[penalties.length];
+        int[] result = new int[links];
+        for (int link = 0; link < links; link++) {
+            int best = pick(link, penalties, weights, capacities, assigned, linkPenalty, true);
+            if (best == -1) best = pick(link, penalties, weights, capacities, assigned, linkPenalty, false);
+            result[link] = best;
+            assigned[best]++;
+        }
+        return result;
+    }
+
+    private static int pick(int link, int[] penalties, @Nullable double[] weights, int[] capacities, int[] assigned,
+                            @Nullable IntBinaryOperator linkPenalty, boolean respectCapacity) {
+        int best = -1;
+        double record = Double.MAX_VALUE;
+        for (int node = 0; node < penalties.length; node++) {
+            if (respectCapacity && assigned[node] >= capacities[node]) continue;
+
+            double score = penalties[node] + assigned[node] * (weights != null ? weights[node] : 1);
+            if (linkPenalty != null) score += linkPenalty.applyAsInt(link, node);
+            if (score < record) {
+                best = node;
+                record = score;
+            }
+        }
+        return best;
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes how the links of a lost node were moved to other nodes.
+ *
+ * @see LavalinkLoadBalancer#getLastMigration()
+ */
+@SuppressWarnings("unused")
+public class MigrationReport {
+
+    @NonNull
+    private final String node;
+    private final int links;
+    private final int overCapacity;
+    private final long planningNanos;
+    private final long migrationNanos;
+
+    MigrationReport(@NonNull String node, int links, int overCapacity, long planningNanos, long migrationNanos) {
+        this.node = node;
+        this.links = links;
+        this.overCapacity = overCapacity;
+        this.planningNanos = planningNanos;
+        this.migrationNanos = migrationNanos;
+    }
+
+    /**
+     * @return the name of the node that was lost
+     */
+    @NonNull
+    public String getNode() {
+        return node;
+    }
+
+    /**
+     * @return the number of links that were moved
+     */
+    public int getLinks() {
+        return links;
+    }
+
+    /**
+     * @return the number of links that had to be moved to nodes beyond their capacity, because all nodes were full
+     */
+    public int getOverCapacity() {
+        return overCapacity;
+    }
+
+    /**
+     * @return how long it took to decide where each link goes, in microseconds
+     */
+    public long getPlanningTime() {
+        return TimeUnit.NANOSECONDS.toMicros(planningNanos);
+    }
+
+    /**
+     * @return how long it took to hand the links over once planned, in microseconds. Unless the migration rate is
+     * unlimited, the links are then moved over time.
+     * @see LavalinkLoadBalancer#setMigrationRate(double, int)
+     */
+    public long getMigrationTime() {
+        return TimeUnit.NANOSECONDS.toMicros(migrationNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "MigrationReport{" +
+                "node=" + node +
+                ", links=" + links +
+                ", overCapacity=" + overCapacity +
+                ", planningTime=" + getPlanningTime() + "us" +
+                ", migrationTime=" + getMigrationTime() + "us" +
+                '}';
+    }
+}
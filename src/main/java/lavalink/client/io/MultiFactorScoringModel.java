@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import javax.annotation.CheckReturnValue;
+
+/**
+ * A {@link ScoringModel} that takes more of the stats into account than the default:
+ * <ul>
+ * <li>CPU load caused by other processes than Lavalink counts extra, as moving players away does not reduce it</li>
+ * <li>Heap usage, so that nodes close to running out of memory are avoided</li>
+ * <li>Players are weighed by the number of cores, so that large nodes get proportionally more of them</li>
+ * </ul>
+ * Each factor has a weight. Changes take effect with the next stats of each node, or right away when the model is
+ * set again with {@link LavalinkLoadBalancer#setScoringModel(ScoringModel)}.
+ *
+ * @see ScoringModel#multiFactor()
+ */
+@SuppressWarnings("unused")
+public final class MultiFactorScoringModel implements ScoringModel {
+
+    private volatile double cpuWeight = 1;
+    private volatile double foreignLoadWeight = 1.5;
+    private volatile double memoryWeight = 1;
+    private volatile double frameWeight = 1;
+    private volatile double playerDensityWeight = 4;
+
+    MultiFactorScoringModel() {
+    }
+
+    @NonNull
+    @Override
+    public PenaltySnapshot score(@NonNull RemoteStats stats, @NonNull StatsHistory history, boolean available) {
+        double lavalinkLoad = Math.min(stats.getLavalinkLoad(), stats.getSystemLoad());
+        double load = lavalinkLoad + foreignLoadWeight * (stats.getSystemLoad() - lavalinkLoad);
+        int cpuPenalty = (int) (cpuWeight * PenaltySnapshot.cpuPenalty(Math.max(0, Math.min(1, load))));
+
+        int deficitFramePenalty = (int) (frameWeight * PenaltySnapshot.deficitFramePenalty(stats.getAvgFramesDeficitPerMinute()));
+        int nullFramePenalty = stats.getAvgFramesDeficitPerMinute() == -1 ? 0
+                : (int) (frameWeight * PenaltySnapshot.nullFramePenalty(stats.getAvgFramesNulledPerMinute()));
+
+        // The reservable memory is the maximum heap size
+        long maxHeap = stats.getMemReservable() > 0 ? stats.getMemReservable() : stats.getMemAllocated();
+        int memoryPenalty = 0;
+        if (maxHeap > 0) {
+            double usage = Math.min(1, (double) stats.getMemUsed() / maxHeap);
+            // Grows like the CPU penalty
+            memoryPenalty = (int) (memoryWeight * PenaltySnapshot.cpuPenalty(usage));
+        }
+
+        double playerWeight = playerDensityWeight / Math.max(1, stats.getCpuCores());
+        return new PenaltySnapshot(stats, available, cpuPenalty, deficitFramePenalty, nullFramePenalty, memoryPenalty,
+                playerWeight);
+    }
+
+    public double getCpuWeight() {
+        return cpuWeight;
+    }
+
+    /**
+     * Defaults to 1, which is the same as the default model
+     */
+    @CheckReturnValue
+    public MultiFactorScoringModel setCpuWeight(double cpuWeight) {
+        this.cpuWeight = cpuWeight;
+        return this;
+    }
+
+    public double getForeignLoadWeight() {
+        return foreignLoadWeight;
+    }
+
+    /**
+     * Sets how much CPU load caused by other processes counts, relative to load caused by Lavalink. Defaults to 1.5.
+     * 1 uses the system load as it is.
+     */
+    @CheckReturnValue
+    public MultiFactorScoringModel setForeignLoadWeight(double foreignLoadWeight) {
+        this.foreignLoadWeight = foreignLoadWeight;
+        return this;
+    }
+
+    public double getMemoryWeight() {
+        return memoryWeight;
+    }
+
+    /**
+     * Defaults to 1, which penalizes a full heap about as much as a fully loaded CPU. 0 ignores memory.
+     */
+    @CheckReturnValue
+    public MultiFactorScoringModel setMemoryWeight(double memoryWeight) {
+        this.memoryWeight = memoryWeight;
+        return this;
+    }
+
+    public double getFrameWeight() {
+        return frameWeight;
+    }
+
+    /**
+     * Defaults to 1, which is the same as the default model
+     */
+    @CheckReturnValue
+    public MultiFactorScoringModel setFrameWeight(double frameWeight) {
+        this.frameWeight = frameWeight;
+        return this;
+    }
+
+    public double getPlayerDensityWeight() {
+        return playerDensityWeight;
+    }
+
+    /**
+     * Sets the penalty of one playing player per core. Defaults to 4, so that on a node with 4 cores a player is worth
+     * 1 point like in the default model, and on a node with 16 cores a quarter point.
+     */
+    @CheckReturnValue
+    public MultiFactorScoringModel setPlayerDensityWeight(double playerDensityWeight) {
+        this.playerDensityWeight = playerDensityWeight;
+        return this;
+    }
+}
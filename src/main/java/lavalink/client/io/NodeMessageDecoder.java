@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+/**
+ * A small streaming reader for the messages sent by a Lavalink node.
+ * <p>
+ * It picks out {@code op}, {@code guildId} and the {@code state} fields of a {@code playerUpdate} without building a
+ * {@link org.json.JSONObject}, as these updates make up the bulk of the inbound traffic. Everything else is skipped
+ * over. Rare ops such as {@code stats} and {@code event} are expected to be parsed in full by the caller.
+ * <p>
+ * Instances hold the result of the last {@link #decode(String)} call and are not thread safe. Each socket owns one,
+ * which is only used from its read thread.
+ */
+final class NodeMessageDecoder {
+
+    enum Op {
+        PLAYER_UPDATE("playerUpdate"),
+        STATS("stats"),
+        EVENT("event"),
+        /** Either an op we don't know about or the message had no op at all */
+        UNKNOWN(null);
+
+        private final String name;
+
+        Op(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final Op[] KNOWN_OPS = {Op.PLAYER_UPDATE, Op.STATS, Op.EVENT};
+
+    private String message;
+    private int pos;
+
+    private Op op;
+    private boolean hasGuildId;
+    private long guildId;
+    private boolean hasStateTime;
+    private long stateTime;
+    private long statePosition;
+    private boolean stateConnected;
+
+    /**
+     * Scans a message and remembers the fields of interest.
+     *
+     * @param message the raw text frame
+     * @return false if the message is malformed or uses a construct this reader doesn't handle, such as a
+     * non-numeric guild id or escaped keys. The caller should fall back to a full parse in that case.
+     */
+    boolean decode(String message) {
+        this.message = message;
+        pos = 0;
+        op = Op.UNKNOWN;
+        hasGuildId = false;
+        guildId = 0;
+        hasStateTime = false;
+        stateTime = 0;
+        statePosition = 0;
+        stateConnected = true;
+
+        try {
+            if (!readRoot()) return false;
+            skipWhitespace();
+            return pos == message.length();
+        } catch (IndexOutOfBoundsException e) {
+            // Truncated message
+            return false;
+        } finally {
+            this.message = null;
+        }
+    }
+
+    Op getOp() {
+        return op;
+    }
+
+    boolean hasGuildId() {
+        return hasGuildId;
+    }
+
+    long getGuildId() {
+        return guildId;
+    }
+
+    /**
+     * @return true if the message carried a guild id and a {@code state} object with at least a {@code time} field
+     */
+    boolean hasPlayerState() {
+        return hasGuildId && hasStateTime;
+    }
+
+    long getStateTime() {
+        return stateTime;
+    }
+
+    /**
+     * @return the reported position, or 0 if the node didn't send one
+     */
+    long getStatePosition() {
+        return statePosition;
+    }
+
+    /**
+     * @return the reported connection state, or true if the node didn't send one
+     */
+    boolean isStateConnected() {
+        return stateConnected;
+    }
+
+    private boolean readRoot() {
+        skipWhitespace();
+        if (!consume('{')) return false;
+        skipWhitespace();
+        if (consume('}')) return true;
+
+        while (true) {
+            int keyStart = readPlainString();
+            if (keyStart < 0) return false;
+            int keyEnd = pos - 1;
+            skipWhitespace();
+            if (!consume(':')) return false;
+            skipWhitespace();
+
+            if (keyEquals(keyStart, keyEnd, "op")) {
+                if (!readOp()) return false;
+            } else if (keyEquals(keyStart, keyEnd, "guildId")) {
+                if (!readGuildId()) return false;
+            } else if (keyEquals(keyStart, keyEnd, "state") && peek() == '{') {
+                if (!readState()) return false;
+            } else if (!skipValue()) {
+                return false;
+            }
+
+            skipWhitespace();
+            if (consume(',')) {
+                skipWhitespace();
+                continue;
+            }
+            return consume('}');
+        }
+    }
+
+    private boolean readOp() {
+        int start = readPlainString();
+        if (start < 0) return false;
+        int end = pos - 1;
+        for (Op known : KNOWN_OPS) {
+            if (keyEquals(start, end, known.name)) {
+                op = known;
+                return true;
+            }
+        }
+        op = Op.UNKNOWN;
+        return true;
+    }
+
+    private boolean readGuildId() {
+        int start = readPlainString();
+        if (start < 0) return false;
+        int end = pos - 1;
+        if (start == end || end - start > 19) return false;
+
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            char c = message.charAt(i);
+            if (c < '0' || c > '9') return false;
+            result = result * 10 + (c - '0');
+            if (result < 0) return false; // Overflow
+        }
+        guildId = result;
+        hasGuildId = true;
+        return true;
+    }
+
+    private boolean readState() {
+        consume('{');
+        skipWhitespace();
+        if (consume('}')) return true;
+
+        while (true) {
+            int keyStart = readPlainString();
+            if (keyStart < 0) return false;
+            int keyEnd = pos - 1;
+            skipWhitespace();
+            if (!consume(':')) return false;
+            skipWhitespace();
+
+            if (keyEquals(keyStart, keyEnd, "time")) {
+                if (!isNumberStart(peek())) return false;
+                stateTime = readLong();
+                if (pos < 0) return false;
+                hasStateTime = true;
+            } else if (keyEquals(keyStart, keyEnd, "position") && isNumberStart(peek())) {
+                statePosition = readLong();
+                if (pos < 0) return false;
+            } else if (keyEquals(keyStart, keyEnd, "connected") && (peek() == 't' || peek() == 'f')) {
+                if (consumeLiteral("true")) {
+                    stateConnected = true;
+                } else if (consumeLiteral("false")) {
+                    stateConnected = false;
+                } else {
+                    return false;
+                }
+            } else if (!skipValue()) {
+                return false;
+            }
+
+            skipWhitespace();
+            if (consume(',')) {
+                skipWhitespace();
+                continue;
+            }
+            return consume('}');
+        }
+    }
+
+    /**
+     * Reads a JSON integer. Fractions and exponents are rejected by setting {@link #pos} to -1.
+     */
+    private long readLong() {
+        boolean negative = consume('-');
+        int start = pos;
+        long result = 0;
+        while (pos < message.length()) {
+            char c = message.charAt(pos);
+            if (c < '0' || c > '9') break;
+            result = result * 10 + (c - '0');
+            pos++;
+        }
+        int digits = pos - start;
+        if (digits == 0 || digits > 18) {
+            pos = -1;
+            return 0;
+        }
+        if (pos < message.length()) {
+            char c = message.charAt(pos);
+            if (c == '.' || c == 'e' || c == 'E') {
+                pos = -1;
+                return 0;
+            }
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Reads a string that contains no escape sequences.
+     *
+     * @return the index of the first character inside the quotes, with {@link #pos} placed after the closing quote.
+     * -1 if there was no string here or it contained escapes.
+     */
+    private int readPlainString() {
+        if (!consume('"')) return -1;
+        int start = pos;
+        while (true) {
+            char c = message.charAt(pos++);
+            if (c == '"') return start;
+            if (c == '\\') return -1;
+        }
+    }
+
+    private boolean skipValue() {
+        char c = peek();
+        switch (c) {
+            case '"':
+                skipString();
+                return true;
+            case '{':
+            case '[':
+                return skipContainer();
+            case 't':
+                return consumeLiteral("true");
+            case 'f':
+                return consumeLiteral("false");
+            case 'n':
+                return consumeLiteral("null");
+            default:
+                if (!isNumberStart(c)) return false;
+                skipNumber();
+                return true;
+        }
+    }
+
+    private void skipString() {
+        pos++; // Opening quote
+        while (true) {
+            char c = message.charAt(pos++);
+            if (c == '"') return;
+            if (c == '\\') pos++;
+        }
+    }
+
+    /**
+     * Skips a nested object or array. Structure is only checked loosely, as its contents are never used.
+     */
+    private boolean skipContainer() {
+        int depth = 0;
+        while (true) {
+            char c = message.charAt(pos);
+            switch (c) {
+                case '"':
+                    skipString();
+                    continue;
+                case '{':
+                case '[':
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    depth--;
+                    break;
+                default:
+                    break;
+            }
+            pos++;
+            if (depth == 0) return true;
+            if (depth < 0) return false;
+        }
+    }
+
+    private void skipNumber() {
+        pos++;
+        while (pos < message.length()) {
+            char c = message.charAt(pos);
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                pos++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private boolean keyEquals(int start, int end, String expected) {
+        return end - start == expected.length() && message.regionMatches(start, expected, 0, expected.length());
+    }
+
+    private boolean consumeLiteral(String literal) {
+        if (!message.startsWith(literal, pos)) return false;
+        pos += literal.length();
+        return true;
+    }
+
+    private boolean consume(char c) {
+        if (pos < message.length() && message.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private char peek() {
+        return message.charAt(pos);
+    }
+
+    private void skipWhitespace() {
+        while (pos < message.length()) {
+            char c = message.charAt(pos);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return;
+            pos++;
+        }
+    }
+
+    private static boolean isNumberStart(char c) {
+        return c == '-' || (c >= '0' && c <= '9');
+    }
+
+}
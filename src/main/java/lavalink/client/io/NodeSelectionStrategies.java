@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToIntFunction;
+
+/**
+ * The built-in {@link NodeSelectionStrategy node selection strategies}
+ */
+final class NodeSelectionStrategies {
+
+    private NodeSelectionStrategies() {
+    }
+
+    @Nullable
+    static LavalinkSocket leastPenalty(long guild, List<LavalinkSocket> nodes, ToIntFunction<LavalinkSocket> penalty) {
+        LavalinkSocket leastPenalty = null;
+        int record = PenaltySnapshot.UNAVAILABLE;
+        for (LavalinkSocket node : nodes) {
+            int total = penalty.applyAsInt(node);
+            if (total < record) {
+                leastPenalty = node;
+                record = total;
+            }
+        }
+        return leastPenalty;
+    }
+
+    @Nullable
+    static LavalinkSocket powerOfTwoChoices(long guild, List<LavalinkSocket> nodes, ToIntFunction<LavalinkSocket> penalty) {
+        int size = nodes.size();
+        if (size <= 2) return leastPenalty(guild, nodes, penalty);
+
+        int[] available = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (nodes.get(i).isAvailable()) available[count++] = i;
+        }
+        if (count <= 2) return leastPenalty(guild, nodes, penalty);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt(count);
+        int b = random.nextInt(count - 1);
+        if (b >= a) b++;
+        LavalinkSocket first = nodes.get(available[a]);
+        LavalinkSocket second = nodes.get(available[b]);
+        int firstPenalty = penalty.applyAsInt(first);
+        int secondPenalty = penalty.applyAsInt(second);
+        if (firstPenalty >= PenaltySnapshot.UNAVAILABLE && secondPenalty >= PenaltySnapshot.UNAVAILABLE) {
+            // Probably nodes without stats yet. Look for any usable node.
+            return leastPenalty(guild, nodes, penalty);
+        }
+        return secondPenalty < firstPenalty ? second : first;
+    }
+
+    @Nullable
+    static LavalinkSocket weightedRandom(long guild, List<LavalinkSocket> nodes, ToIntFunction<LavalinkSocket> penalty) {
+        double[] weights = new double[nodes.size()];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            int total = penalty.applyAsInt(nodes.get(i));
+            if (total >= PenaltySnapshot.UNAVAILABLE) continue;
+            weights[i] = 1d / (1 + Math.max(0, total));
+            sum += weights[i];
+        }
+        if (sum == 0) return null;
+
+        double target = ThreadLocalRandom.current().nextDouble(sum);
+        LavalinkSocket last = null;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] == 0) continue;
+            last = nodes.get(i);
+            target -= weights[i];
+            if (target < 0) return last;
+        }
+        // Rounding errors
+        return last;
+    }
+
+    @Nullable
+    static LavalinkSocket consistentHash(long guild, List<LavalinkSocket> nodes, ToIntFunction<LavalinkSocket> penalty) {
+        LavalinkSocket best = null;
+        long record = 0;
+        for (LavalinkSocket node : nodes) {
+            if (!node.isAvailable()) continue;
+            long score = mix(guild ^ mix(node.getName().hashCode()));
+            if (best == null || Long.compareUnsigned(score, record) > 0) {
+                if (penalty.applyAsInt(node) >= PenaltySnapshot.UNAVAILABLE) continue;
+                best = node;
+                record = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The finalizer of SplitMix64, so that similar guild ids and node names give unrelated scores
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+}
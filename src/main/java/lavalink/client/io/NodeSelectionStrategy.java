@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Decides which node a guild is put on.
+ * <p>
+ * Penalties of the nodes only change with their stats messages, while new guilds can arrive at any rate. Always
+ * picking the node with the least penalty therefore tends to herd all new guilds onto one node until the next stats
+ * message. The randomized and hashing strategies spread them out.
+ *
+ * @see LavalinkLoadBalancer#setSelectionStrategy(NodeSelectionStrategy)
+ */
+@FunctionalInterface
+public interface NodeSelectionStrategy {
+
+    /**
+     * @param guild   the guild that needs a node
+     * @param nodes   all nodes, including those that are not available
+     * @param penalty the total penalty of a node for this guild. {@link PenaltySnapshot#UNAVAILABLE} or more means
+     *                the node must not be picked. May be costly if custom penalties are used.
+     * @return the node to use, or null if none are available
+     */
+    @Nullable
+    LavalinkSocket select(long guild, @NonNull List<LavalinkSocket> nodes, @NonNull ToIntFunction<LavalinkSocket> penalty);
+
+    /**
+     * Picks the node with the least penalty. This is the default.
+     */
+    static NodeSelectionStrategy leastPenalty() {
+        return NodeSelectionStrategies::leastPenalty;
+    }
+
+    /**
+     * Picks two available nodes at random, and uses the one with the lesser penalty. Nearly as good at avoiding
+     * loaded nodes as {@link #leastPenalty()}, without sending every new guild to the same node.
+     */
+    static NodeSelectionStrategy powerOfTwoChoices() {
+        return NodeSelectionStrategies::powerOfTwoChoices;
+    }
+
+    /**
+     * Picks an available node at random, with a chance inversely proportional to its penalty plus one.
+     */
+    static NodeSelectionStrategy weightedRandom() {
+        return NodeSelectionStrategies::weightedRandom;
+    }
+
+    /**
+     * Picks a node by hashing the guild id together with the node names (rendezvous hashing), ignoring penalties.
+     * A guild gets the same node every time. When a node is added or removed, only the guilds that move to or from
+     * that node are affected.
+     */
+    static NodeSelectionStrategy consistentHash() {
+        return NodeSelectionStrategies::consistentHash;
+    }
+
+}
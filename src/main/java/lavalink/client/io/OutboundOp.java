@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+/**
+ * The kinds of ops we send to a node. Used by {@link LavalinkSocket} to tell which queued ops of a guild are made
+ * redundant by a later one.
+ */
+public enum OutboundOp {
+    PLAY,
+    STOP,
+    PAUSE,
+    SEEK,
+    VOLUME,
+    FILTERS,
+    VOICE_UPDATE,
+    DESTROY,
+    /**
+     * Not tied to a guild, or not known to us. These are never collapsed.
+     */
+    OTHER;
+
+    /**
+     * @return true if only the latest op of this kind matters, so that a burst of them for a guild may be collapsed
+     * into one. Other ops must be sent in order.
+     */
+    boolean isCoalescable() {
+        return this == PAUSE || this == SEEK || this == VOLUME || this == FILTERS;
+    }
+
+    /**
+     * @param earlier an op of the same guild that was sent before this one
+     * @return true if the effect of {@code earlier} is completely replaced by this op
+     */
+    boolean supersedes(OutboundOp earlier) {
+        if (this == OTHER || earlier == OTHER) return false;
+
+        switch (this) {
+            case DESTROY:
+                return true;
+            case PLAY:
+                // A play carries the current pause state and volume
+                return earlier == PLAY || earlier == STOP || earlier == SEEK || earlier == PAUSE || earlier == VOLUME;
+            case STOP:
+                return earlier == PLAY || earlier == STOP || earlier == SEEK;
+            default:
+                return earlier == this;
+        }
+    }
+}
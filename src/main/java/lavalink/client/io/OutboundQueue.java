@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Holds ops for a node, either while it is not connected or while they are being coalesced.
+ * <p>
+ * Ops are kept in the order they were sent, except that an op makes earlier ops of the same guild that it
+ * {@link OutboundOp#supersedes(OutboundOp) supersedes} disappear. A guild therefore takes up at most a handful of
+ * entries, no matter how many ops are sent for it. When full, new ops are dropped.
+ * <p>
+ * Not thread safe, {@link LavalinkSocket} synchronizes on the queue.
+ */
+final class OutboundQueue {
+
+    private static final OutboundOp[] OPS = OutboundOp.values();
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>();
+    private int capacity;
+    private long dropped = 0;
+    private long superseded = 0;
+    /** When the oldest op still in the queue was added, by {@link System#nanoTime()} */
+    private long backlogStart = 0;
+
+    OutboundQueue(int capacity) {
+        setCapacity(capacity);
+    }
+
+    /**
+     * @return false if the op was dropped because the queue is full
+     */
+    boolean offer(long guildId, OutboundOp op, String message) {
+        Entry entry = new Entry(guildId, op, message);
+        Object key = entry;
+        if (op != OutboundOp.OTHER) {
+            removeSuperseded(guildId, op);
+            key = new GuildOpKey(guildId, op);
+        }
+
+        if (entries.size() >= capacity) {
+            dropped++;
+            return false;
+        }
+
+        if (entries.isEmpty()) backlogStart = System.nanoTime();
+        entries.put(key, entry);
+        return true;
+    }
+
+    /**
+     * Empties the queue
+     *
+     * @return the queued ops in the order they should be sent
+     */
+    List<Entry> drain() {
+        List<Entry> result = new ArrayList<>(entries.values());
+        entries.clear();
+        return result;
+    }
+
+    /**
+     * Takes out the ops of one guild, so that an op that must not be collapsed can be sent after them.
+     *
+     * @param next the op that is about to be sent. Queued ops that it supersedes are discarded.
+     * @return the remaining ops of the guild, in the order they should be sent
+     */
+    List<Entry> drain(long guildId, OutboundOp next) {
+        removeSuperseded(guildId, next);
+        List<Entry> result = new ArrayList<>();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.guildId == guildId && entry.op != OutboundOp.OTHER) {
+                result.add(entry);
+                iterator.remove();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Discards the ops of one guild, such as when its state is about to be sent again in full
+     *
+     * @return the number of ops discarded
+     */
+    int removeGuild(long guildId) {
+        int removed = 0;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.guildId == guildId && entry.op != OutboundOp.OTHER) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private void removeSuperseded(long guildId, OutboundOp op) {
+        for (OutboundOp earlier : OPS) {
+            if (op.supersedes(earlier) && entries.remove(new GuildOpKey(guildId, earlier)) != null) superseded++;
+        }
+    }
+
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return the total number of ops that were discarded because a later op replaced them
+     */
+    long getSuperseded() {
+        return superseded;
+    }
+
+    long getBacklogStart() {
+        return backlogStart;
+    }
+
+    void setCapacity(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("Capacity must not be negative");
+        this.capacity = capacity;
+    }
+
+    static final class Entry {
+        final long guildId;
+        final OutboundOp op;
+        final String message;
+
+        private Entry(long guildId, OutboundOp op, String message) {
+            this.guildId = guildId;
+            this.op = op;
+            this.message = message;
+        }
+    }
+
+    private static final class GuildOpKey {
+        private final long guildId;
+        private final OutboundOp op;
+
+        private GuildOpKey(long guildId, OutboundOp op) {
+            this.guildId = guildId;
+            this.op = op;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof GuildOpKey)) return false;
+            GuildOpKey that = (GuildOpKey) o;
+            return guildId == that.guildId && op == that.op;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(guildId) + op.ordinal();
+        }
+    }
+
+}
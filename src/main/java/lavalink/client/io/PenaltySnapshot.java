@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * The penalties of a node that only depend on its {@link RemoteStats} and availability, as computed by the
+ * {@link ScoringModel}. A new snapshot is published by the {@link LavalinkSocket} whenever either changes, so that
+ * node selection does not need to recompute them.
+ *
+ * @see LavalinkSocket#getPenaltySnapshot()
+ */
+@SuppressWarnings("unused")
+public final class PenaltySnapshot {
+
+    /** The total penalty of a node that can not be used */
+    public static final int UNAVAILABLE = Integer.MAX_VALUE - 1;
+    static final PenaltySnapshot EMPTY = new PenaltySnapshot(null, false);
+
+    @Nullable
+    private final RemoteStats stats;
+    private final boolean available;
+    private final int cpuPenalty;
+    private final int deficitFramePenalty;
+    private final int nullFramePenalty;
+    private final int memoryPenalty;
+    private final double playerWeight;
+
+    PenaltySnapshot(@Nullable RemoteStats stats, boolean available) {
+        this(stats, available,
+                stats == null ? 0 : stats.getSystemLoad(),
+                stats == null ? -1 : stats.getAvgFramesDeficitPerMinute(),
+                stats == null ? -1 : stats.getAvgFramesNulledPerMinute());
+    }
+
+    /**
+     * Computes the penalties from the given values instead of the ones in the stats, such as averages or predictions
+     *
+     * @param systemLoad    from 0 to 1
+     * @param framesDeficit average per minute, -1 if not known
+     * @param framesNulled  average per minute, -1 if not known
+     * @see ScoringModel
+     */
+    public PenaltySnapshot(@Nullable RemoteStats stats, boolean available, double systemLoad, double framesDeficit,
+                           double framesNulled) {
+        this(stats, available,
+                stats == null ? 0 : cpuPenalty(systemLoad),
+                stats == null ? 0 : deficitFramePenalty(framesDeficit),
+                stats == null ? 0 : nullFramePenalty(framesDeficit == -1 ? -1 : framesNulled),
+                0, 1);
+    }
+
+    /**
+     * Takes penalties that have already been computed, such as by a {@link ScoringModel} with its own formulas
+     *
+     * @param playerWeight how many penalty points each playing player on the node is worth
+     */
+    public PenaltySnapshot(@Nullable RemoteStats stats, boolean available, int cpuPenalty, int deficitFramePenalty,
+                           int nullFramePenalty, int memoryPenalty, double playerWeight) {
+        this.stats = stats;
+        this.available = available;
+        this.cpuPenalty = cpuPenalty;
+        this.deficitFramePenalty = deficitFramePenalty;
+        this.nullFramePenalty = nullFramePenalty;
+        this.memoryPenalty = memoryPenalty;
+        this.playerWeight = playerWeight;
+    }
+
+    /**
+     * @param systemLoad from 0 to 1
+     */
+    static int cpuPenalty(double systemLoad) {
+        // https://fred.moe/293.png
+        return (int) Math.pow(1.05d, 100 * systemLoad) * 10 - 10;
+    }
+
+    /**
+     * @param framesDeficit average per minute, -1 if not known
+     */
+    static int deficitFramePenalty(double framesDeficit) {
+        // -1 Means we don't have any frame stats. This is normal for very young nodes
+        if (framesDeficit == -1) return 0;
+        // https://fred.moe/rjD.png
+        return (int) (Math.pow(1.03d, 500f * ((float) framesDeficit / 3000f)) * 600 - 600);
+    }
+
+    /**
+     * @param framesNulled average per minute, -1 if not known
+     */
+    static int nullFramePenalty(double framesNulled) {
+        if (framesNulled == -1) return 0;
+        // Deficit frames are better than null frames, as deficit frames can be caused by the garbage collector
+        return 2 * (int) (Math.pow(1.03d, 500f * ((float) Math.max(0, framesNulled) / 3000f)) * 300 - 300);
+    }
+
+    @Nullable
+    public RemoteStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return whether the node was available when this snapshot was taken
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public int getCpuPenalty() {
+        return cpuPenalty;
+    }
+
+    public int getDeficitFramePenalty() {
+        return deficitFramePenalty;
+    }
+
+    public int getNullFramePenalty() {
+        return nullFramePenalty;
+    }
+
+    public int getMemoryPenalty() {
+        return memoryPenalty;
+    }
+
+    /**
+     * @return how many penalty points each playing player on the node is worth. 1 unless the scoring model weighs
+     * players by the size of the node.
+     */
+    public double getPlayerWeight() {
+        return playerWeight;
+    }
+
+    /**
+     * @return the penalty for the given number of playing players on the node
+     */
+    public int getPlayerPenalty(int playingPlayers) {
+        return (int) (playingPlayers * playerWeight);
+    }
+
+    /**
+     * @return the sum of the penalties in this snapshot, or {@link Integer#MAX_VALUE} - 1 if the node can not be used
+     */
+    public int getTotal() {
+        if (!available || stats == null) return UNAVAILABLE;
+        return cpuPenalty + deficitFramePenalty + nullFramePenalty + memoryPenalty;
+    }
+
+    @Override
+    public String toString() {
+        return "PenaltySnapshot{" +
+                "available=" + available +
+                ", cpuPenalty=" + cpuPenalty +
+                ", deficitFramePenalty=" + deficitFramePenalty +
+                ", nullFramePenalty=" + nullFramePenalty +
+                ", memoryPenalty=" + memoryPenalty +
+                ", playerWeight=" + playerWeight +
+                '}';
+    }
+}
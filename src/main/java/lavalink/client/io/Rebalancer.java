@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import lavalink.client.player.LavalinkPlayer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves links from busy nodes to quiet ones in small batches, so that a node that joins or recovers takes its share
+ * of the load. Only moves that listeners won't notice are made: links that are idle or paused are moved right away,
+ * while playing links are moved once their track ends.
+ * <p>
+ * Also moves the links of draining nodes away in the same way, see {@link Link#onTrackEnd()} for the playing ones.
+ *
+ * @see LavalinkLoadBalancer#setRebalancing(boolean)
+ * @see LavalinkSocket#drain()
+ */
+final class Rebalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(Rebalancer.class);
+
+    private final Lavalink<?> lavalink;
+    private volatile boolean enabled = false;
+    private volatile double threshold = 0.2;
+    private volatile int batchSize = 10;
+    private final AtomicLong idleMoves = new AtomicLong(0);
+    private final AtomicLong trackEndMoves = new AtomicLong(0);
+    private final AtomicLong drainMoves = new AtomicLong(0);
+
+    Rebalancer(Lavalink<?> lavalink) {
+        this.lavalink = lavalink;
+    }
+
+    void run() {
+        if (!enabled) return;
+        try {
+            rebalance();
+        } catch (Exception e) {
+            log.error("Caught exception while rebalancing", e);
+        }
+    }
+
+    void runDrain() {
+        try {
+            drain();
+        } catch (Exception e) {
+            log.error("Caught exception while draining nodes", e);
+        }
+    }
+
+    private void drain() {
+        Set<LavalinkSocket> draining = new HashSet<>();
+        for (LavalinkSocket node : lavalink.getNodes()) {
+            // Links of unavailable nodes are moved by the load balancer
+            if (node.isDraining() && node.isAvailable() && node.getAssignedPlayers() > 0) draining.add(node);
+        }
+        if (draining.isEmpty()) return;
+
+        LavalinkLoadBalancer loadBalancer = lavalink.getLoadBalancer();
+        long now = System.nanoTime();
+        int budget = batchSize;
+        for (Link link : lavalink.getLinks()) {
+            if (budget == 0) break;
+            LavalinkSocket node = link.getNode(false);
+            if (node == null || !draining.contains(node)) continue;
+            if (link.getState() == Link.State.DESTROYING || link.getState() == Link.State.DESTROYED) continue;
+            // Moved when the track ends
+            if (isPlaying(link) && !node.isDrainOverdue(now)) continue;
+
+            LavalinkSocket target;
+            try {
+                target = loadBalancer.determineBestSocket(link.guild, link.getVoiceRegion());
+            } catch (IllegalStateException e) {
+                log.warn("No nodes to move the links of draining nodes to");
+                return;
+            }
+            link.moveNode(target);
+            drainMoves.incrementAndGet();
+            budget--;
+        }
+
+        for (LavalinkSocket node : draining) {
+            log.debug("Draining {}: {} links left", node.getName(), node.getAssignedPlayers());
+        }
+    }
+
+    private void rebalance() {
+        // The load of each node, including the moves we make or schedule in this run. Players are weighed like in the
+        // penalties, so that nodes with more cores take more of them if the scoring model says so.
+        Map<LavalinkSocket, Double> load = new HashMap<>();
+        Map<LavalinkSocket, Double> weights = new HashMap<>();
+        double total = 0;
+        for (LavalinkSocket node : lavalink.getNodes()) {
+            if (!node.isAvailable() || node.isDraining()) continue;
+            double weight = node.getPenaltySnapshot().getPlayerWeight();
+            weights.put(node, weight);
+            load.put(node, node.getAssignedPlayers() * weight);
+            total += node.getAssignedPlayers() * weight;
+        }
+        if (load.size() < 2 || total == 0) return;
+
+        // A node that has just joined is below the average by far more than the others are above it
+        double average = total / load.size();
+        boolean imbalanced = false;
+        for (double players : load.values()) {
+            if (players > average * (1 + threshold) || players < average * (1 - threshold)) imbalanced = true;
+        }
+        if (!imbalanced) return;
+
+        List<Link> idle = new ArrayList<>();
+        List<Link> playing = new ArrayList<>();
+        for (Link link : lavalink.getLinks()) {
+            LavalinkSocket node = link.getNode(false);
+            if (node == null || !load.containsKey(node) || load.get(node) <= average) continue;
+            if (link.getState() != Link.State.CONNECTED) continue;
+            if (link.getPendingMove() != null) continue;
+            if (isPlaying(link)) {
+                playing.add(link);
+            } else {
+                idle.add(link);
+            }
+        }
+
+        int budget = batchSize;
+        int moved = 0;
+        int scheduled = 0;
+        for (Link link : idle) {
+            if (budget == 0) break;
+            LavalinkSocket target = pickTarget(link, load, weights, average);
+            if (target == null) continue;
+            link.moveNode(target);
+            idleMoves.incrementAndGet();
+            moved++;
+            budget--;
+        }
+        for (Link link : playing) {
+            if (budget == 0) break;
+            LavalinkSocket target = pickTarget(link, load, weights, average);
+            if (target == null) continue;
+            link.setPendingMove(target);
+            scheduled++;
+            budget--;
+        }
+
+        if (moved > 0 || scheduled > 0) {
+            log.info("Rebalancing: moved {} idle links, {} playing links will move when their track ends", moved, scheduled);
+        }
+    }
+
+    /**
+     * @return the least loaded node, if moving the link there brings both nodes closer to the average and does not
+     * take the link further from its voice server
+     */
+    private LavalinkSocket pickTarget(Link link, Map<LavalinkSocket, Double> load, Map<LavalinkSocket, Double> weights,
+                                      double average) {
+        LavalinkSocket source = link.getNode(false);
+        if (source == null || !load.containsKey(source)) return null;
+
+        LavalinkSocket target = null;
+        for (Map.Entry<LavalinkSocket, Double> entry : load.entrySet()) {
+            if (target == null || entry.getValue() < load.get(target)) target = entry.getKey();
+        }
+        if (target == null || target == source) return null;
+        double sourceLoad = load.get(source);
+        double targetLoad = load.get(target);
+        double targetWeight = weights.get(target);
+        if (sourceLoad <= average || targetLoad >= average || targetLoad + targetWeight >= sourceLoad) return null;
+
+        LavalinkLoadBalancer loadBalancer = lavalink.getLoadBalancer();
+        String region = link.getVoiceRegion();
+        if (loadBalancer.getRegionPenalty(target, region) > loadBalancer.getRegionPenalty(source, region)) return null;
+
+        load.put(source, sourceLoad - weights.get(source));
+        load.put(target, targetLoad + targetWeight);
+        return target;
+    }
+
+    private static boolean isPlaying(Link link) {
+        LavalinkPlayer player = link.getExistingPlayer();
+        return player != null && player.getPlayingTrack() != null && !player.isPaused();
+    }
+
+    void onTrackEndMove(boolean drain) {
+        if (drain) {
+            drainMoves.incrementAndGet();
+        } else {
+            trackEndMoves.incrementAndGet();
+        }
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setThreshold(double threshold) {
+        if (threshold < 0) throw new IllegalArgumentException("Threshold must not be negative");
+        this.threshold = threshold;
+    }
+
+    void setBatchSize(int batchSize) {
+        if (batchSize < 1) throw new IllegalArgumentException("Batch size must be at least 1");
+        this.batchSize = batchSize;
+    }
+
+    long getIdleMoves() {
+        return idleMoves.get();
+    }
+
+    long getTrackEndMoves() {
+        return trackEndMoves.get();
+    }
+
+    long getDrainMoves() {
+        return drainMoves.get();
+    }
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides how long to wait before trying to reconnect to a node.
+ *
+ * @see Lavalink#setReconnectPolicy(ReconnectPolicy)
+ */
+@FunctionalInterface
+public interface ReconnectPolicy {
+
+    /**
+     * @param attempt the number of the upcoming attempt since we were last connected, starting at 1
+     * @return the delay before that attempt, in milliseconds
+     */
+    long getDelay(int attempt);
+
+    /**
+     * Exponential backoff with full jitter: the delay is picked at random from zero up to, but not including,
+     * {@code min(max, base * 2^(attempt - 1))}. The randomness keeps many clients that lost a node at the same time
+     * from all hitting it again at the same moment once it recovers.
+     *
+     * @param base the upper bound of the first delay, in milliseconds
+     * @param max  the highest the upper bound may grow to, in milliseconds
+     */
+    static ReconnectPolicy exponentialBackoff(long base, long max) {
+        if (base <= 0 || max < base) throw new IllegalArgumentException("Expected 0 < base <= max");
+
+        return attempt -> {
+            int doublings = Math.min(Math.max(attempt - 1, 0), 62);
+            long bound = base > (max >> doublings) ? max : base << doublings;
+            return ThreadLocalRandom.current().nextLong(bound);
+        };
+    }
+
+}
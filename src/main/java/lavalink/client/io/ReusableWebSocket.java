@@ -4,28 +4,38 @@
 
 package lavalink.client.io;
 
+import org.java_websocket.WebSocket;
 import org.java_websocket.client.WebSocketClient;
 import org.java_websocket.drafts.Draft;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.framing.PingFrame;
 import org.java_websocket.handshake.ServerHandshake;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public abstract class ReusableWebSocket {
 
     private static final Logger log = LoggerFactory.getLogger(ReusableWebSocket.class);
 
-    private DisposableSocket socket;
+    private volatile DisposableSocket socket;
     private final URI serverUri;
     private final Draft draft;
     private final Map<String, String> headers;
     private final int connectTimeout;
     private final ReusableWebSocket instance = this; // For use in inner class
     private boolean isUsed = false;
-    private int heartbeatTimeout = 60;
+    private volatile int heartbeatTimeout = 60;
+    private volatile boolean sharedHeartbeat = false;
+    /** When we last heard from the server, by {@link System#nanoTime()} */
+    private volatile long lastActivity = 0;
+    private volatile long lastPing = 0;
 
     public ReusableWebSocket(URI serverUri, Draft draft, Map<String, String> headers, int connectTimeout) {
         this.serverUri = serverUri;
@@ -48,6 +58,31 @@ public abstract class ReusableWebSocket {
         }
     }
 
+    /**
+     * Sends a ping carrying the current time, so that the round-trip time is reported to {@link #onPong(long)} once
+     * the pong arrives. Does nothing if we are not connected.
+     */
+    public void sendTimedPing() {
+        DisposableSocket socket = this.socket;
+        if (socket == null || !socket.isOpen()) return;
+
+        long now = System.nanoTime();
+        lastPing = now;
+        ByteBuffer payload = ByteBuffer.allocate(Long.BYTES);
+        payload.putLong(0, now);
+        PingFrame frame = new PingFrame();
+        frame.setPayload(payload);
+        socket.sendFrame(frame);
+    }
+
+    /**
+     * Called when the pong to a {@link #sendTimedPing()} arrives.
+     *
+     * @param rttNanos the round-trip time in nanoseconds
+     */
+    protected void onPong(long rttNanos) {
+    }
+
     public URI getServerUri() {
         return this.serverUri;
     }
@@ -75,14 +110,14 @@ public abstract class ReusableWebSocket {
 
     public void connect() {
         if (socket == null || isUsed) socket = new DisposableSocket(serverUri, draft, headers, connectTimeout);
-        socket.setConnectionLostTimeout(heartbeatTimeout);
+        socket.setConnectionLostTimeout(sharedHeartbeat ? 0 : heartbeatTimeout);
         socket.connect();
         isUsed = true;
     }
 
     public void connectBlocking() throws InterruptedException {
         if (socket == null || isUsed) socket = new DisposableSocket(serverUri, draft, headers, connectTimeout);
-        socket.setConnectionLostTimeout(heartbeatTimeout);
+        socket.setConnectionLostTimeout(sharedHeartbeat ? 0 : heartbeatTimeout);
         socket.connectBlocking();
         isUsed = true;
     }
@@ -104,7 +139,39 @@ public abstract class ReusableWebSocket {
 
     public void setHeartbeatTimeout(int seconds) {
         heartbeatTimeout = seconds;
-        socket.setConnectionLostTimeout(seconds);
+        if (socket != null) socket.setConnectionLostTimeout(sharedHeartbeat ? 0 : seconds);
+    }
+
+    /**
+     * If enabled, the heartbeat of this connection is checked by a timer thread shared by all connections that have
+     * this enabled, instead of by a timer thread of its own. Applies from the next connect.
+     */
+    public void setSharedHeartbeat(boolean sharedHeartbeat) {
+        this.sharedHeartbeat = sharedHeartbeat;
+        if (!sharedHeartbeat) SharedHeartbeat.unregister(this);
+    }
+
+    public boolean isSharedHeartbeat() {
+        return sharedHeartbeat;
+    }
+
+    /**
+     * Called by the {@link SharedHeartbeat}. Pings the server once per heartbeat timeout, and drops the connection
+     * if we have not heard from it for one and a half times the timeout, like Java-WebSocket's own timer does.
+     */
+    void checkHeartbeat(long now) {
+        DisposableSocket socket = this.socket;
+        int timeoutSeconds = heartbeatTimeout;
+        if (socket == null || !socket.isOpen() || timeoutSeconds <= 0) return;
+
+        long timeout = TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        if (now - lastActivity > timeout + timeout / 2) {
+            log.warn("Heard nothing from {} in {} seconds, closing connection", serverUri,
+                    TimeUnit.NANOSECONDS.toSeconds(now - lastActivity));
+            socket.closeConnection(CloseFrame.ABNORMAL_CLOSE, "The connection was lost");
+        } else if (now - lastPing >= timeout) {
+            sendTimedPing();
+        }
     }
 
     private class DisposableSocket extends WebSocketClient {
@@ -116,16 +183,20 @@ public abstract class ReusableWebSocket {
 
         @Override
         public void onOpen(ServerHandshake handshakedata) {
+            lastActivity = System.nanoTime();
+            if (sharedHeartbeat) SharedHeartbeat.register(instance);
             instance.onOpen(handshakedata);
         }
 
         @Override
         public void onMessage(String message) {
+            lastActivity = System.nanoTime();
             instance.onMessage(message);
         }
 
         @Override
         public void onClose(int code, String reason, boolean remote) {
+            SharedHeartbeat.unregister(instance);
             instance.onClose(code, reason, remote);
         }
 
@@ -133,6 +204,17 @@ public abstract class ReusableWebSocket {
         public void onError(Exception ex) {
             instance.onError(ex);
         }
+
+        @Override
+        public void onWebsocketPong(WebSocket conn, Framedata f) {
+            super.onWebsocketPong(conn, f);
+            lastActivity = System.nanoTime();
+
+            // The pongs to the pings of the connection-lost timer have no payload
+            ByteBuffer payload = f.getPayloadData();
+            if (payload == null || payload.remaining() != Long.BYTES) return;
+            instance.onPong(System.nanoTime() - payload.getLong(payload.position()));
+        }
     }
 
 }
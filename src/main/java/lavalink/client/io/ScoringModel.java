@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns the stats of a node into its stats based penalties. Invoked once per stats message of each node.
+ *
+ * @see LavalinkLoadBalancer#setScoringModel(ScoringModel)
+ */
+@FunctionalInterface
+public interface ScoringModel {
+
+    /**
+     * @param stats     the stats that were just received
+     * @param history   the recent stats of the node, including these
+     * @param available whether the node can be used
+     */
+    @NonNull
+    PenaltySnapshot score(@NonNull RemoteStats stats, @NonNull StatsHistory history, boolean available);
+
+    /**
+     * Uses only the most recent stats. This is the default.
+     */
+    static ScoringModel latest() {
+        return ScoringModels::latest;
+    }
+
+    /**
+     * Uses the moving averages of the stats, plus how much they will have grown within the horizon if they keep
+     * rising as they did recently. A node that is filling up is avoided before it is loaded, while a single spike
+     * has little effect. Falling trends are ignored, so that a node is not trusted until it has actually recovered.
+     *
+     * @param horizon how far ahead to look. About the time it takes for new guilds to affect the stats of a node.
+     */
+    static ScoringModel predictive(long horizon, @NonNull TimeUnit unit) {
+        return new ScoringModels.Predictive((double) unit.toNanos(horizon) / TimeUnit.MINUTES.toNanos(1));
+    }
+
+    /**
+     * Also weighs memory usage, CPU load caused by other processes and players per core, with adjustable weights.
+     * Nodes with more cores get proportionally more players.
+     *
+     * @see MultiFactorScoringModel
+     */
+    static MultiFactorScoringModel multiFactor() {
+        return new MultiFactorScoringModel();
+    }
+
+}
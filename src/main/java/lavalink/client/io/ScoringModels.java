@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * The built-in {@link ScoringModel scoring models}
+ */
+final class ScoringModels {
+
+    private ScoringModels() {
+    }
+
+    @NonNull
+    static PenaltySnapshot latest(@NonNull RemoteStats stats, @NonNull StatsHistory history, boolean available) {
+        return new PenaltySnapshot(stats, available);
+    }
+
+    static final class Predictive implements ScoringModel {
+
+        private final double minutes;
+
+        Predictive(double minutes) {
+            this.minutes = minutes;
+        }
+
+        @NonNull
+        @Override
+        public PenaltySnapshot score(@NonNull RemoteStats stats, @NonNull StatsHistory history, boolean available) {
+            double systemLoad = Math.min(1, predict(history, StatsHistory.Metric.SYSTEM_LOAD));
+            double framesDeficit = predict(history, StatsHistory.Metric.FRAMES_DEFICIT);
+            double framesNulled = predict(history, StatsHistory.Metric.FRAMES_NULLED);
+            return new PenaltySnapshot(stats, available, systemLoad, framesDeficit, framesNulled);
+        }
+
+        /**
+         * @return -1 if the metric was never reported
+         */
+        private double predict(StatsHistory history, StatsHistory.Metric metric) {
+            double average = history.getAverage(metric);
+            if (average == -1) return -1;
+            return average + Math.max(0, history.getTrend(metric)) * minutes;
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single timer thread that checks the heartbeat of all connections that use it, for all {@link Lavalink} instances
+ * in this JVM. Replaces the connection-lost timer thread that Java-WebSocket otherwise starts for every connection.
+ * The thread is started by the first connection that registers, and stopped when the last one unregisters.
+ *
+ * @see ReusableWebSocket#setSharedHeartbeat(boolean)
+ */
+final class SharedHeartbeat {
+
+    private static final Logger log = LoggerFactory.getLogger(SharedHeartbeat.class);
+    private static final long TICK_MS = 1000;
+
+    private static final Set<ReusableWebSocket> sockets = ConcurrentHashMap.newKeySet();
+    /** Guarded by the class, null while no connection is registered */
+    private static ScheduledExecutorService executor = null;
+
+    private SharedHeartbeat() {
+    }
+
+    static synchronized void register(ReusableWebSocket socket) {
+        sockets.add(socket);
+        if (executor != null) return;
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "lavalink-heartbeat-thread");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(SharedHeartbeat::tick, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    static synchronized void unregister(ReusableWebSocket socket) {
+        if (!sockets.remove(socket) || !sockets.isEmpty() || executor == null) return;
+
+        executor.shutdown();
+        executor = null;
+    }
+
+    static synchronized boolean isRunning() {
+        return executor != null;
+    }
+
+    static int getRegisteredCount() {
+        return sockets.size();
+    }
+
+    private static void tick() {
+        long now = System.nanoTime();
+        for (ReusableWebSocket socket : sockets) {
+            try {
+                socket.checkHeartbeat(now);
+            } catch (Exception e) {
+                log.error("Caught exception while checking heartbeat of " + socket.getServerUri(), e);
+            }
+        }
+    }
+
+}
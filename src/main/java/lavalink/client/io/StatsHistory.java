@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The recent {@link RemoteStats} of a node, so that a single noisy stats message does not decide where guilds go.
+ * Keeps the last few samples of each {@link Metric}, along with an exponentially weighted moving average and the
+ * trend over the kept samples. Lavalink sends stats once a minute.
+ *
+ * @see LavalinkSocket#getStatsHistory()
+ * @see ScoringModel#predictive(long, TimeUnit)
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class StatsHistory {
+
+    public enum Metric {
+        /** {@link RemoteStats#getSystemLoad()} */
+        SYSTEM_LOAD,
+        /** {@link RemoteStats#getAvgFramesDeficitPerMinute()} */
+        FRAMES_DEFICIT,
+        /** {@link RemoteStats#getAvgFramesNulledPerMinute()} */
+        FRAMES_NULLED
+    }
+
+    private static final Metric[] METRICS = Metric.values();
+    /** Weight of a new sample in the moving averages */
+    private static final double ALPHA = 0.3;
+    private static final double NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    /** By {@link System#nanoTime()} */
+    private final long[] times;
+    /** Per metric, NaN where a sample did not include the metric */
+    private final double[][] samples;
+    /** Per metric, NaN until the metric is first reported */
+    private final double[] averages = new double[METRICS.length];
+    /** Index the next sample is written to */
+    private int next = 0;
+    private int size = 0;
+
+    StatsHistory(int capacity) {
+        if (capacity < 2) throw new IllegalArgumentException("Capacity must be at least 2");
+        times = new long[capacity];
+        samples = new double[METRICS.length][capacity];
+        Arrays.fill(averages, Double.NaN);
+    }
+
+    synchronized void record(@NonNull RemoteStats stats, long nanoTime) {
+        times[next] = nanoTime;
+        // -1 Means we don't have any frame stats. This is normal for very young nodes
+        boolean frames = stats.getAvgFramesDeficitPerMinute() != -1;
+        record(Metric.SYSTEM_LOAD, stats.getSystemLoad());
+        record(Metric.FRAMES_DEFICIT, frames ? stats.getAvgFramesDeficitPerMinute() : Double.NaN);
+        record(Metric.FRAMES_NULLED, frames ? stats.getAvgFramesNulledPerMinute() : Double.NaN);
+        next = (next + 1) % times.length;
+        size = Math.min(size + 1, times.length);
+    }
+
+    private void record(Metric metric, double value) {
+        int m = metric.ordinal();
+        samples[m][next] = value;
+        if (Double.isNaN(value)) return;
+        averages[m] = Double.isNaN(averages[m]) ? value : averages[m] + ALPHA * (value - averages[m]);
+    }
+
+    /**
+     * @return the number of samples kept, at most {@link #getCapacity()}
+     */
+    public synchronized int getSize() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return times.length;
+    }
+
+    /**
+     * @param age 0 for the most recent sample, 1 for the one before, and so on
+     * @return the metric in that sample, or -1 if the sample did not include it
+     * @throws IndexOutOfBoundsException if age is not less than {@link #getSize()}
+     */
+    public synchronized double getSample(@NonNull Metric metric, int age) {
+        if (age < 0 || age >= size) throw new IndexOutOfBoundsException("Age " + age + " of " + size + " samples");
+        double value = samples[metric.ordinal()][index(age)];
+        return Double.isNaN(value) ? -1 : value;
+    }
+
+    /**
+     * @return the exponentially weighted moving average of the metric, or -1 if it was never reported
+     */
+    public synchronized double getAverage(@NonNull Metric metric) {
+        double average = averages[metric.ordinal()];
+        return Double.isNaN(average) ? -1 : average;
+    }
+
+    /**
+     * @return how much the metric changes per minute, by a least squares fit over the kept samples. 0 if there are
+     * fewer than two samples with the metric.
+     */
+    public synchronized double getTrend(@NonNull Metric metric) {
+        double[] values = samples[metric.ordinal()];
+        long newest = times[index(0)];
+        int count = 0;
+        double sumX = 0;
+        double sumY = 0;
+        for (int age = 0; age < size; age++) {
+            double y = values[index(age)];
+            if (Double.isNaN(y)) continue;
+            count++;
+            sumX += (times[index(age)] - newest) / NANOS_PER_MINUTE;
+            sumY += y;
+        }
+        if (count < 2) return 0;
+
+        double meanX = sumX / count;
+        double meanY = sumY / count;
+        double sxx = 0;
+        double sxy = 0;
+        for (int age = 0; age < size; age++) {
+            double y = values[index(age)];
+            if (Double.isNaN(y)) continue;
+            double dx = (times[index(age)] - newest) / NANOS_PER_MINUTE - meanX;
+            sxx += dx * dx;
+            sxy += dx * (y - meanY);
+        }
+        return sxx == 0 ? 0 : sxy / sxx;
+    }
+
+    private int index(int age) {
+        return (next - 1 - age + 2 * times.length) % times.length;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "StatsHistory{" +
+                "size=" + size +
+                ", systemLoad=" + getAverage(Metric.SYSTEM_LOAD) +
+                ", systemLoadTrend=" + getTrend(Metric.SYSTEM_LOAD) +
+                ", framesDeficit=" + getAverage(Metric.FRAMES_DEFICIT) +
+                ", framesNulled=" + getAverage(Metric.FRAMES_NULLED) +
+                '}';
+    }
+}
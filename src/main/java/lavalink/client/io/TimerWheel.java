@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Schedules entries by deadline in a ring of slots that each cover one tick, so that scheduling and collecting due
+ * entries cost the same no matter how many entries there are. Deadlines that are more than one turn of the wheel
+ * away are put in the last slot, and come up early. Entries are never cancelled, the owner checks them when they
+ * come up instead.
+ * <p>
+ * Not thread safe.
+ */
+final class TimerWheel<E> {
+
+    private final long tickNanos;
+    private final Object[][] slots;
+    private final int[] sizes;
+    /** The first tick that has not come up yet */
+    private long tick;
+    private int size = 0;
+
+    /**
+     * @param nanoTime the current time, by {@link System#nanoTime()}
+     */
+    TimerWheel(int slots, long tickNanos, long nanoTime) {
+        if (slots < 2) throw new IllegalArgumentException("A wheel needs at least 2 slots");
+        if (tickNanos <= 0) throw new IllegalArgumentException("Tick must be positive");
+        this.tickNanos = tickNanos;
+        this.slots = new Object[slots][];
+        this.sizes = new int[slots];
+        this.tick = Math.floorDiv(nanoTime, tickNanos);
+    }
+
+    /**
+     * @param deadline by {@link System#nanoTime()}. The entry comes up no earlier than this, unless the deadline is
+     *                 beyond the wheel.
+     */
+    void schedule(E entry, long deadline) {
+        long target = -Math.floorDiv(-deadline, tickNanos);
+        target = Math.max(tick, Math.min(target, tick + slots.length - 1));
+        int slot = (int) Math.floorMod(target, (long) slots.length);
+
+        Object[] entries = slots[slot];
+        if (entries == null) {
+            entries = slots[slot] = new Object[4];
+        } else if (sizes[slot] == entries.length) {
+            Object[] grown = new Object[entries.length * 2];
+            System.arraycopy(entries, 0, grown, 0, entries.length);
+            entries = slots[slot] = grown;
+        }
+        entries[sizes[slot]++] = entry;
+        size++;
+    }
+
+    /**
+     * Moves the wheel to the given time
+     *
+     * @return the entries of all slots that came up
+     */
+    @SuppressWarnings("unchecked")
+    List<E> advance(long nanoTime) {
+        long now = Math.floorDiv(nanoTime, tickNanos);
+        List<E> due = new ArrayList<>();
+        // Slots more than one turn behind have already been collected in this loop
+        for (long t = Math.max(tick, now - slots.length + 1); t <= now; t++) {
+            int slot = (int) Math.floorMod(t, (long) slots.length);
+            Object[] entries = slots[slot];
+            if (entries == null) continue;
+            for (int i = 0; i < sizes[slot]; i++) {
+                due.add((E) entries[i]);
+            }
+            // Let a slot that grew large for a burst of entries shrink again
+            if (entries.length > 64) {
+                slots[slot] = null;
+            } else {
+                Arrays.fill(entries, 0, sizes[slot], null);
+            }
+            size -= sizes[slot];
+            sizes[slot] = 0;
+        }
+        tick = Math.max(tick, now + 1);
+        return due;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getTickNanos() {
+        return tickNanos;
+    }
+}
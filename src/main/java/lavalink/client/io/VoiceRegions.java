@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.util.Locale;
+
+/**
+ * Tells the region of a Discord voice server from its endpoint
+ */
+final class VoiceRegions {
+
+    private VoiceRegions() {
+    }
+
+    /**
+     * Supports both endpoint formats used by Discord:
+     * <ul>
+     * <li>{@code us-east1234.discord.media:443} gives {@code us-east}</li>
+     * <li>{@code c-fra08-8d7e4d9f.discord.media:443} gives {@code fra}</li>
+     * </ul>
+     *
+     * @return the region, or null if the endpoint is missing or not understood
+     */
+    @Nullable
+    static String fromEndpoint(@Nullable String endpoint) {
+        if (endpoint == null) return null;
+
+        int end = endpoint.indexOf('.');
+        if (end == -1) end = endpoint.indexOf(':');
+        String host = (end == -1 ? endpoint : endpoint.substring(0, end)).toLowerCase(Locale.ROOT);
+
+        if (host.startsWith("c-")) {
+            int dash = host.indexOf('-', 2);
+            host = dash == -1 ? host.substring(2) : host.substring(2, dash);
+        }
+
+        int length = host.length();
+        while (length > 0 && Character.isDigit(host.charAt(length - 1))) {
+            length--;
+        }
+        // Some endpoints end in a dash before the number
+        while (length > 0 && host.charAt(length - 1) == '-') {
+            length--;
+        }
+        return length == 0 ? null : host.substring(0, length);
+    }
+
+}
@@ -21,7 +21,8 @@ public class Filters {
     private final LavalinkPlayer player;
     private final Runnable onCommit;
     private float volume = DEFAULT_VOLUME;
-    private float[] bands = new float[BAND_COUNT];
+    /** Created when a band is set or the bands are read, null until then */
+    private float[] bands = null;
     private Karaoke karaoke = null;
     private Timescale timescale = null;
     private Tremolo tremolo = null;
@@ -44,10 +45,23 @@ public class Filters {
         return player;
     }
 
+    /**
+     * @return the gain of each band. Changes to the array apply to these filters.
+     */
     public float[] getBands() {
+        if (bands == null) bands = new float[BAND_COUNT];
         return bands;
     }
 
+    /**
+     * @return false if no band has ever been set or read, in which case all bands are at 0. Unlike
+     * {@link #getBands()}, this never creates the bands.
+     * Intended for internal use only
+     */
+    public boolean hasBands() {
+        return bands != null;
+    }
+
     /**
      * Configures the equalizer.
      *
@@ -57,6 +71,10 @@ public class Filters {
     @CheckReturnValue
     public Filters setBand(int band, float gain) {
         if (gain < -0.25 || gain > 1) throw new IllegalArgumentException("Gain must be -0.25 to 1.0");
+        if (bands == null) {
+            if (gain == 0.0f && band >= 0 && band < BAND_COUNT) return this;
+            bands = new float[BAND_COUNT];
+        }
         bands[band] = gain;
         return this;
     }
@@ -169,7 +187,7 @@ public class Filters {
     @CheckReturnValue
     public Filters clear() {
         volume = DEFAULT_VOLUME;
-        bands = new float[BAND_COUNT];
+        bands = null;
         timescale = null;
         karaoke = null;
         tremolo = null;
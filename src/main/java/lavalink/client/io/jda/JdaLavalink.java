@@ -18,22 +18,42 @@ import net.dv8tion.jda.api.hooks.EventListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public class JdaLavalink extends Lavalink<JdaLink> implements EventListener {
 
     private static final Logger log = LoggerFactory.getLogger(JdaLavalink.class);
+    /** Discord allows 120 gateway commands per minute on a connection, this leaves room for everything else */
+    private static final int DEFAULT_VOICE_RECONNECT_RATE = 90;
 
     /** JDA provider may be set at a later time */
     @Nullable
     private Function<Integer, JDA> jdaProvider;
     private boolean autoReconnect = true;
     private final JDAVoiceInterceptor voiceInterceptor;
+    /** The links of each shard, so that the events of a shard only touch its own links */
+    private final Set<JdaLink>[] shardLinks;
+    private volatile int voiceReconnectRate = DEFAULT_VOICE_RECONNECT_RATE;
+    /** The latest voice recovery of each shard */
+    private final AtomicReferenceArray<ShardRecovery> recoveries;
 
+    @SuppressWarnings("unchecked")
     public JdaLavalink(String userId, int numShards, @Nullable Function<Integer, JDA> jdaProvider) {
         super(userId, numShards);
         this.jdaProvider = jdaProvider;
         this.voiceInterceptor = new JDAVoiceInterceptor(this);
+        this.shardLinks = new Set[Math.max(1, numShards)];
+        for (int i = 0; i < shardLinks.length; i++) {
+            shardLinks[i] = ConcurrentHashMap.newKeySet();
+        }
+        this.recoveries = new AtomicReferenceArray<>(shardLinks.length);
     }
 
     /**
@@ -59,6 +79,38 @@ public class JdaLavalink extends Lavalink<JdaLink> implements EventListener {
         this.autoReconnect = autoReconnect;
     }
 
+    /**
+     * @return how many voice connections of a shard are reconnected per minute after the shard has reconnected
+     */
+    @SuppressWarnings("unused")
+    public int getVoiceReconnectRate() {
+        return voiceReconnectRate;
+    }
+
+    /**
+     * Sets how many voice connections of a shard are reconnected per minute after the shard has reconnected. Each
+     * reconnect is a voice state update on the gateway, which Discord rate limits. Defaults to 90, which leaves room
+     * for the other commands of the shard.
+     *
+     * @param perMinute the number of reconnects per minute, or 0 to reconnect all voice connections at once
+     */
+    @SuppressWarnings("unused")
+    public void setVoiceReconnectRate(int perMinute) {
+        if (perMinute < 0) throw new IllegalArgumentException("Rate must not be negative");
+        this.voiceReconnectRate = perMinute;
+    }
+
+    /**
+     * @return the latest recovery of the voice connections of the given shard, or null if the shard has not
+     * reconnected yet
+     * @throws IndexOutOfBoundsException if there is no such shard
+     */
+    @SuppressWarnings("unused")
+    @Nullable
+    public ShardRecovery getVoiceRecovery(int shardId) {
+        return recoveries.get(shardId);
+    }
+
     @SuppressWarnings("WeakerAccess")
     @NonNull
     public JdaLink getLink(Guild guild) {
@@ -71,6 +123,29 @@ public class JdaLavalink extends Lavalink<JdaLink> implements EventListener {
         return getExistingLink(guild.getId());
     }
 
+    /**
+     * @return the links of guilds on the given shard. A live view.
+     * @throws IndexOutOfBoundsException if there is no such shard
+     */
+    @SuppressWarnings("unused")
+    @NonNull
+    public Collection<JdaLink> getLinks(int shardId) {
+        return Collections.unmodifiableSet(shardLinks[shardId]);
+    }
+
+    /**
+     * @return the number of links of guilds on the given shard
+     * @throws IndexOutOfBoundsException if there is no such shard
+     */
+    @SuppressWarnings("unused")
+    public int getLinkCount(int shardId) {
+        return shardLinks[shardId].size();
+    }
+
+    int getShardId(long guild) {
+        return LavalinkUtil.getShardFromSnowflake(guild, shardLinks.length);
+    }
+
     /**
      * Returns the JDA instance with the {@code shardId shard ID}
      *
@@ -118,35 +193,57 @@ public class JdaLavalink extends Lavalink<JdaLink> implements EventListener {
     @Override
     public void onEvent(@NonNull GenericEvent event) {
         if (event instanceof ReconnectedEvent) {
-            if (autoReconnect) {
-                getLinksMap().forEach((guildId, link) -> {
-                    try {
-                        //Note: We also ensure that the link belongs to the JDA object
-                        if (link.getLastChannel() != null
-                                && event.getJDA().getGuildById(guildId) != null) {
-                            link.connect(event.getJDA().getVoiceChannelById(link.getLastChannel()), false);
-                        }
-                    } catch (Exception e) {
-                        log.error("Caught exception while trying to reconnect link " + link, e);
-                    }
-                });
-            }
+            if (autoReconnect) recoverVoice(event.getJDA());
         } else if (event instanceof GuildLeaveEvent) {
-            JdaLink link = getLinksMap().get(((GuildLeaveEvent) event).getGuild().getId());
+            JdaLink link = getExistingLink(((GuildLeaveEvent) event).getGuild().getIdLong());
             if (link == null) return;
 
             link.removeConnection();
         } else if (event instanceof VoiceChannelDeleteEvent) {
             VoiceChannelDeleteEvent e = (VoiceChannelDeleteEvent) event;
-            JdaLink link = getLinksMap().get(e.getGuild().getId());
+            JdaLink link = getExistingLink(e.getGuild().getIdLong());
             if (link == null || !e.getChannel().getId().equals(link.getLastChannel())) return;
 
             link.removeConnection();
         }
     }
 
+    /**
+     * Reconnects the voice connections of a shard that has reconnected, paced by the voice reconnect rate
+     */
+    private void recoverVoice(JDA jda) {
+        int shardId = jda.getShardInfo().getShardId();
+        boolean known = shardId < shardLinks.length;
+        List<JdaLink> links = (known ? shardLinks[shardId] : getLinks()).stream()
+                .filter(link -> link.getLastChannel() != null)
+                .collect(Collectors.toList());
+
+        ShardRecovery recovery = new ShardRecovery(shardId, links, link -> {
+            //Note: We also ensure that the link belongs to the JDA object
+            if (link.getLastChannel() == null || jda.getGuildById(link.getGuildIdLong()) == null) return false;
+            link.connect(jda.getVoiceChannelById(link.getLastChannel()), false);
+            return true;
+        }, System.nanoTime());
+
+        if (known) {
+            ShardRecovery previous = recoveries.getAndSet(shardId, recovery);
+            if (previous != null) previous.cancel();
+        }
+        recovery.start(getScheduler(), voiceReconnectRate);
+    }
+
     @Override
     protected JdaLink buildNewLink(String guildId) {
         return new JdaLink(this, guildId);
     }
+
+    @Override
+    protected void onLinkAdded(@NonNull JdaLink link) {
+        shardLinks[link.getShardId()].add(link);
+    }
+
+    @Override
+    protected void onLinkRemoved(@NonNull JdaLink link) {
+        shardLinks[link.getShardId()].remove(link);
+    }
 }
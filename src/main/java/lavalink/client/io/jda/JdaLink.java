@@ -22,10 +22,13 @@ public class JdaLink extends Link {
 
     private static final Logger log = LoggerFactory.getLogger(JdaLink.class);
     private final JdaLavalink lavalink;
+    /** Computed once, as it decides which of the links are touched by the events of a shard */
+    private final int shardId;
 
     JdaLink(JdaLavalink lavalink, String guildId) {
         super(lavalink, guildId);
         this.lavalink = lavalink;
+        this.shardId = lavalink.getShardId(guild);
     }
 
     public void connect(@NonNull VoiceChannel voiceChannel) {
@@ -74,7 +77,15 @@ public class JdaLink extends Link {
     @SuppressWarnings("WeakerAccess")
     @NonNull
     public JDA getJda() {
-        return lavalink.getJdaFromSnowflake(String.valueOf(guild));
+        return lavalink.getJda(shardId);
+    }
+
+    /**
+     * @return the id of the shard that our guild is on
+     */
+    @SuppressWarnings("WeakerAccess")
+    public int getShardId() {
+        return shardId;
     }
 
     @Override
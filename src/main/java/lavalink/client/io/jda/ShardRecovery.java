@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io.jda;
+
+import lavalink.client.io.Link;
+import lavalink.client.player.LavalinkPlayer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * The reconnection of the voice connections of a shard after it has reconnected to the gateway. Links are
+ * reconnected one at a time, those that were playing first, then those that were paused, then the rest. The
+ * recovery is done when every link has connected again or given up.
+ *
+ * @see JdaLavalink#getVoiceRecovery(int)
+ * @see JdaLavalink#setVoiceReconnectRate(int)
+ */
+@SuppressWarnings("unused")
+public final class ShardRecovery {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRecovery.class);
+    /** How long we wait for links to connect after the last one was reconnected */
+    private static final long CONNECT_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final int shardId;
+    private final long startNanos;
+    private final List<JdaLink> queue;
+    /** Reconnects a link, returns false if it should not be reconnected after all */
+    private final Predicate<JdaLink> reconnect;
+    /** Links that were reconnected and have not connected yet, guarded by this */
+    private final List<JdaLink> awaiting = new ArrayList<>();
+    /** Index of the next link to reconnect, guarded by this */
+    private int next = 0;
+    private long lastReconnectNanos;
+    private volatile int reconnected = 0;
+    private volatile int connected = 0;
+    private volatile int failed = 0;
+    private volatile long durationNanos = -1;
+    /** Guarded by this */
+    private Future<?> future = null;
+
+    ShardRecovery(int shardId, Collection<JdaLink> links, Predicate<JdaLink> reconnect, long nanoTime) {
+        this.shardId = shardId;
+        this.startNanos = nanoTime;
+        this.lastReconnectNanos = nanoTime;
+        this.reconnect = reconnect;
+        this.queue = new ArrayList<>(links);
+        // Stable, so that links of the same priority keep their order
+        queue.sort(Comparator.comparingInt(ShardRecovery::priority));
+    }
+
+    /**
+     * @return 0 for playing links, 1 for paused ones, 2 for the rest
+     */
+    private static int priority(Link link) {
+        LavalinkPlayer player = link.getExistingPlayer();
+        if (player == null || player.getPlayingTrack() == null) return 2;
+        return player.isPaused() ? 1 : 0;
+    }
+
+    /**
+     * Starts reconnecting the links on the given scheduler
+     *
+     * @param ratePerMinute how many links to reconnect per minute, 0 to reconnect all of them at once
+     */
+    synchronized void start(ScheduledExecutorService scheduler, int ratePerMinute) {
+        long periodMs = 1000;
+        if (ratePerMinute == 0) {
+            long now = System.nanoTime();
+            while (next < queue.size()) reconnectNext(now);
+        } else {
+            periodMs = Math.max(1, TimeUnit.MINUTES.toMillis(1) / ratePerMinute);
+        }
+        // The first run waits for us to release the lock, so it always sees the future
+        future = scheduler.scheduleAtFixedRate(() -> step(true, System.nanoTime()), 0, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reconnects the next link, and checks on the links that were reconnected
+     *
+     * @param reconnectNext whether to reconnect a link, or only check on them
+     * @return true if the recovery is done
+     */
+    synchronized boolean step(boolean reconnectNext, long nanoTime) {
+        if (isDone()) return true;
+        if (reconnectNext) reconnectNext(nanoTime);
+
+        awaiting.removeIf(link -> {
+            Link.State state = link.getState();
+            if (state == Link.State.CONNECTED) {
+                connected++;
+                return true;
+            }
+            // Disconnected or destroyed in the meantime
+            return state != Link.State.CONNECTING;
+        });
+
+        boolean timedOut = nanoTime - lastReconnectNanos > CONNECT_TIMEOUT_NANOS;
+        if (next < queue.size() || (!awaiting.isEmpty() && !timedOut)) return false;
+
+        durationNanos = nanoTime - startNanos;
+        if (timedOut) failed += awaiting.size();
+        awaiting.clear();
+        if (future != null) future.cancel(false);
+        log.info("Shard {} recovered {} of {} voice connections in {} ms", shardId, connected, reconnected,
+                TimeUnit.NANOSECONDS.toMillis(durationNanos));
+        return true;
+    }
+
+    private void reconnectNext(long nanoTime) {
+        while (next < queue.size()) {
+            JdaLink link = queue.get(next++);
+            Link.State state = link.getState();
+            if (state == Link.State.DESTROYING || state == Link.State.DESTROYED) continue;
+            try {
+                if (!reconnect.test(link)) continue;
+            } catch (Exception e) {
+                log.error("Caught exception while trying to reconnect link " + link, e);
+                failed++;
+                continue;
+            }
+            reconnected++;
+            lastReconnectNanos = nanoTime;
+            awaiting.add(link);
+            return;
+        }
+    }
+
+    synchronized void cancel() {
+        if (future != null) future.cancel(false);
+        // Whatever has not been reconnected yet is taken over by the next recovery of this shard
+        if (durationNanos < 0) durationNanos = System.nanoTime() - startNanos;
+        next = queue.size();
+        awaiting.clear();
+    }
+
+    public int getShardId() {
+        return shardId;
+    }
+
+    /**
+     * @return the number of links that had a voice channel when the shard reconnected
+     */
+    public int getLinks() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of links that have not been reconnected yet
+     */
+    public synchronized int getPending() {
+        return queue.size() - next;
+    }
+
+    /**
+     * @return the number of links that a reconnect was sent for
+     */
+    public int getReconnected() {
+        return reconnected;
+    }
+
+    /**
+     * @return the number of links that are known to have connected again
+     */
+    public int getConnected() {
+        return connected;
+    }
+
+    /**
+     * @return the number of links that failed to reconnect, or did not connect in time
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return the share of the links that have been reconnected, from 0 to 1
+     */
+    public synchronized double getProgress() {
+        return queue.isEmpty() ? 1 : (double) next / queue.size();
+    }
+
+    public boolean isDone() {
+        return durationNanos >= 0;
+    }
+
+    /**
+     * @return how long it took until every link had connected again or given up, in milliseconds. -1 while in
+     * progress.
+     */
+    public long getTimeToRecover() {
+        long duration = durationNanos;
+        return duration < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(duration);
+    }
+
+    @Override
+    public String toString() {
+        return "ShardRecovery{" +
+                "shard=" + shardId +
+                ", links=" + getLinks() +
+                ", pending=" + getPending() +
+                ", connected=" + connected +
+                ", failed=" + failed +
+                ", timeToRecover=" + getTimeToRecover() + "ms" +
+                '}';
+    }
+}
@@ -6,12 +6,18 @@ package lavalink.client.io.metrics;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
 import io.prometheus.client.Collector;
+import io.prometheus.client.CounterMetricFamily;
 import io.prometheus.client.GaugeMetricFamily;
+import lavalink.client.io.EventDispatcher;
+import lavalink.client.io.LatencyTracker;
 import lavalink.client.io.Lavalink;
 import lavalink.client.io.LavalinkSocket;
+import lavalink.client.io.MigrationReport;
 import lavalink.client.io.RemoteStats;
+import lavalink.client.io.StatsHistory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -70,6 +76,12 @@ public class LavalinkCollector extends Collector {
         GaugeMetricFamily lavalinkLoad = new GaugeMetricFamily("lavalink_load_lavalink",
                 "Load caused by Lavalink", labelNames);
         mfs.add(lavalinkLoad);
+        GaugeMetricFamily systemLoadAverage = new GaugeMetricFamily("lavalink_load_system_average",
+                "Moving average of the total load of the system", labelNames);
+        mfs.add(systemLoadAverage);
+        GaugeMetricFamily systemLoadTrend = new GaugeMetricFamily("lavalink_load_system_trend",
+                "How much the total load of the system changes per minute, over the recent stats", labelNames);
+        mfs.add(systemLoadTrend);
 
 
         GaugeMetricFamily averageFramesSentPerMinute = new GaugeMetricFamily("lavalink_average_frames_sent_per_minute",
@@ -83,9 +95,109 @@ public class LavalinkCollector extends Collector {
         mfs.add(averageFramesDeficitPerMinute);
 
 
+        CounterMetricFamily reconnectAttempts = new CounterMetricFamily("lavalink_reconnect_attempts_total",
+                "Amount of attempts to reconnect to the node", labelNames);
+        mfs.add(reconnectAttempts);
+        GaugeMetricFamily timeToReconnect = new GaugeMetricFamily("lavalink_time_to_reconnect_seconds",
+                "How long it took to reconnect the last time the connection was lost", labelNames);
+        mfs.add(timeToReconnect);
+
+
+        GaugeMetricFamily sendQueueLength = new GaugeMetricFamily("lavalink_send_queue_length",
+                "Amount of ops waiting for the node to connect", labelNames);
+        mfs.add(sendQueueLength);
+        CounterMetricFamily sendQueueDropped = new CounterMetricFamily("lavalink_send_queue_dropped_total",
+                "Amount of ops dropped because the send queue was full", labelNames);
+        mfs.add(sendQueueDropped);
+        CounterMetricFamily coalescedOps = new CounterMetricFamily("lavalink_coalesced_ops_total",
+                "Amount of ops not sent because a later op replaced them within the coalescing window", labelNames);
+        mfs.add(coalescedOps);
+        GaugeMetricFamily sendQueueFlushLatency = new GaugeMetricFamily("lavalink_send_queue_flush_latency_seconds",
+                "How long the oldest op was held by the last flush of the send queue", labelNames);
+        mfs.add(sendQueueFlushLatency);
+
+
+        GaugeMetricFamily rtt = new GaugeMetricFamily("lavalink_node_rtt_seconds",
+                "Smoothed WebSocket round-trip time to the node", labelNames);
+        mfs.add(rtt);
+        GaugeMetricFamily rttQuantiles = new GaugeMetricFamily("lavalink_node_rtt_quantile_seconds",
+                "Quantiles of the recent WebSocket round-trip times to the node", Arrays.asList("node", "quantile"));
+        mfs.add(rttQuantiles);
+
+
+        GaugeMetricFamily eventQueueDepth = new GaugeMetricFamily("lavalink_event_dispatch_queue_depth",
+                "Amount of player events waiting to be handled", Collections.singletonList("thread"));
+        mfs.add(eventQueueDepth);
+
+        EventDispatcher dispatcher = lavalink.getEventDispatcher();
+        for (int i = 0; i < dispatcher.getThreadCount(); i++) {
+            eventQueueDepth.addMetric(Collections.singletonList(Integer.toString(i)), dispatcher.getQueueDepth(i));
+        }
+
+
+        MigrationReport migration = lavalink.getLoadBalancer().getLastMigration();
+        if (migration != null) {
+            mfs.add(new GaugeMetricFamily("lavalink_last_migration_links",
+                    "Amount of links moved away from the node that was lost most recently", migration.getLinks()));
+            mfs.add(new GaugeMetricFamily("lavalink_last_migration_planning_seconds",
+                    "How long it took to plan the most recent migration of links", (double) migration.getPlanningTime() / 1000000));
+            mfs.add(new GaugeMetricFamily("lavalink_last_migration_seconds",
+                    "How long it took to carry out the most recent migration of links", (double) migration.getMigrationTime() / 1000000));
+        }
+
+
+        mfs.add(new CounterMetricFamily("lavalink_migrated_links_total",
+                "Amount of links moved to another node because their node was lost",
+                lavalink.getLoadBalancer().getMigratedLinks()));
+        mfs.add(new CounterMetricFamily("lavalink_migration_outage_seconds_total",
+                "Total time migrated links spent without a working node",
+                (double) lavalink.getLoadBalancer().getMigrationOutageTime() / 1000));
+        CounterMetricFamily rebalancedLinks = new CounterMetricFamily("lavalink_rebalanced_links_total",
+                "Amount of links moved to another node to even out the load", Collections.singletonList("state"));
+        rebalancedLinks.addMetric(Collections.singletonList("idle"), lavalink.getLoadBalancer().getRebalancedIdleLinks());
+        rebalancedLinks.addMetric(Collections.singletonList("playing"), lavalink.getLoadBalancer().getRebalancedPlayingLinks());
+        mfs.add(rebalancedLinks);
+        mfs.add(new CounterMetricFamily("lavalink_drained_links_total",
+                "Amount of links moved away from draining nodes", lavalink.getLoadBalancer().getDrainedLinks()));
+        mfs.add(new GaugeMetricFamily("lavalink_links_current",
+                "Amount of links, including idle ones", lavalink.getLinks().size()));
+        mfs.add(new CounterMetricFamily("lavalink_evicted_links_total",
+                "Amount of links destroyed because they were idle", lavalink.getEvictedLinks()));
+        GaugeMetricFamily drainProgress = new GaugeMetricFamily("lavalink_node_drain_progress",
+                "Share of the links of a draining node that have been moved away, from 0 to 1", labelNames);
+        mfs.add(drainProgress);
+        GaugeMetricFamily migrationBacklog = new GaugeMetricFamily("lavalink_migration_backlog",
+                "Amount of links waiting to be moved to the node", labelNames);
+        mfs.add(migrationBacklog);
+        GaugeMetricFamily migrationOldestWait = new GaugeMetricFamily("lavalink_migration_oldest_wait_seconds",
+                "How long the link waiting the longest to be moved to the node has been without a working node", labelNames);
+        mfs.add(migrationOldestWait);
+
+
         List<LavalinkSocket> nodes = lavalink.getNodes();
         for (LavalinkSocket node : nodes) {
             List<String> labels = Collections.singletonList(node.getName());
+
+            reconnectAttempts.addMetric(labels, node.getReconnectAttempts());
+            timeToReconnect.addMetric(labels, (double) node.getLastTimeToReconnect() / 1000);
+
+            sendQueueLength.addMetric(labels, node.getSendQueueSize());
+            sendQueueDropped.addMetric(labels, node.getDroppedMessages());
+            sendQueueFlushLatency.addMetric(labels, (double) node.getLastFlushLatency() / 1000);
+            coalescedOps.addMetric(labels, node.getCoalescedOps());
+
+            migrationBacklog.addMetric(labels, lavalink.getLoadBalancer().getMigrationBacklog(node));
+            migrationOldestWait.addMetric(labels, (double) lavalink.getLoadBalancer().getOldestMigrationWait(node) / 1000);
+            if (node.isDraining()) drainProgress.addMetric(labels, node.getDrainProgress());
+
+            LatencyTracker latency = node.getLatency();
+            if (latency.getSampleCount() > 0) {
+                rtt.addMetric(labels, latency.getSmoothed() / 1000);
+                rttQuantiles.addMetric(Arrays.asList(node.getName(), "0.5"), latency.getPercentile(50) / 1000);
+                rttQuantiles.addMetric(Arrays.asList(node.getName(), "0.95"), latency.getPercentile(95) / 1000);
+                rttQuantiles.addMetric(Arrays.asList(node.getName(), "0.99"), latency.getPercentile(99) / 1000);
+            }
+
             RemoteStats stats = node.getStats();
             if (stats == null) {
                 continue;
@@ -103,6 +215,8 @@ public class LavalinkCollector extends Collector {
             cpuCores.addMetric(labels, stats.getCpuCores());
             systemLoad.addMetric(labels, stats.getSystemLoad());
             lavalinkLoad.addMetric(labels, stats.getLavalinkLoad());
+            systemLoadAverage.addMetric(labels, node.getStatsHistory().getAverage(StatsHistory.Metric.SYSTEM_LOAD));
+            systemLoadTrend.addMetric(labels, node.getStatsHistory().getTrend(StatsHistory.Metric.SYSTEM_LOAD));
 
             averageFramesSentPerMinute.addMetric(labels, stats.getAvgFramesSentPerMinute());
             averageFramesNulledPerMinute.addMetric(labels, stats.getAvgFramesNulledPerMinute());
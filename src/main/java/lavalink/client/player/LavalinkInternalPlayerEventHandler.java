@@ -10,6 +10,12 @@ import lavalink.client.player.event.PlayerEventListenerAdapter;
 
 class LavalinkInternalPlayerEventHandler extends PlayerEventListenerAdapter {
 
+    /** Has no state, so one instance serves all players */
+    static final LavalinkInternalPlayerEventHandler INSTANCE = new LavalinkInternalPlayerEventHandler();
+
+    private LavalinkInternalPlayerEventHandler() {
+    }
+
     @Override
     public void onTrackEnd(IPlayer player, AudioTrack track, AudioTrackEndReason endReason) {
         if (endReason != AudioTrackEndReason.REPLACED && endReason != AudioTrackEndReason.STOPPED) {
@@ -8,9 +8,10 @@ import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import lavalink.client.LavalinkUtil;
 import lavalink.client.io.LavalinkSocket;
 import lavalink.client.io.Link;
-import lavalink.client.io.filters.*;
+import lavalink.client.io.MessageEncoder;
+import lavalink.client.io.OutboundOp;
+import lavalink.client.io.filters.Filters;
 import lavalink.client.player.event.*;
-import org.json.JSONArray;
 import org.json.JSONObject;
 
 import javax.annotation.CheckReturnValue;
@@ -31,7 +32,8 @@ public class LavalinkPlayer implements IPlayer {
     private boolean connected = false;
 
     private final Link link;
-    private List<IPlayerEventListener> listeners = new CopyOnWriteArrayList<>();
+    /** Lazily initialized, as many players never get a listener. The internal handler is shared by all players. */
+    private volatile List<IPlayerEventListener> listeners = null;
 
     /**
      * Constructor only for internal use
@@ -40,7 +42,6 @@ public class LavalinkPlayer implements IPlayer {
      */
     public LavalinkPlayer(Link link) {
         this.link = link;
-        addListener(new LavalinkInternalPlayerEventHandler());
     }
 
     /**
@@ -49,6 +50,8 @@ public class LavalinkPlayer implements IPlayer {
      * Used when we are moved to a new socket
      */
     public void onNodeChange() {
+        // The new node knows nothing of our filters, and they should be in place when the track starts
+        sendFilters();
         AudioTrack track = getPlayingTrack();
         if (track != null) {
             track.setPosition(getTrackPosition());
@@ -57,6 +60,15 @@ public class LavalinkPlayer implements IPlayer {
 
     }
 
+    /**
+     * Sends our filters to our node, if any have been set. Used when the link moves to another node.
+     * Intended for internal use only.
+     */
+    public void sendFilters() {
+        if (filters == null) return;
+        onCommit();
+    }
+
     @Override
     public AudioTrack getPlayingTrack() {
         return track;
@@ -68,22 +80,16 @@ public class LavalinkPlayer implements IPlayer {
             position = track.getPosition();
             TrackData trackData = track.getUserData(TrackData.class);
 
-            JSONObject json = new JSONObject();
-            json.put("op", "play");
-            json.put("guildId", link.getGuildId());
-            json.put("track", LavalinkUtil.toMessage(link.getLavalink().getAudioPlayerManager(), track));
-            json.put("startTime", position);
-            if (trackData != null) {
-                json.put("startTime", trackData.startPos);
-                json.put("endTime", trackData.endPos);
-            }
-            json.put("pause", paused);
-            json.put("volume", volume);
+            String encodedTrack = LavalinkUtil.toMessage(link.getLavalink().getAudioPlayerManager(), track);
+            String message = trackData != null
+                    ? MessageEncoder.play(link.getGuildId(), encodedTrack, trackData.startPos, trackData.endPos, paused, volume)
+                    : MessageEncoder.play(link.getGuildId(), encodedTrack, position, paused, volume);
             //noinspection ConstantConditions
-            link.getNode(true).send(json.toString());
+            link.getNode(true).send(link.getGuildIdLong(), OutboundOp.PLAY, message);
 
             updateTime = System.currentTimeMillis();
             this.track = track;
+            link.onPlayerStateChange();
             emitEvent(new TrackStartEvent(this, track));
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -93,13 +99,11 @@ public class LavalinkPlayer implements IPlayer {
     @Override
     public void stopTrack() {
         track = null;
+        link.onPlayerStateChange();
 
         LavalinkSocket node = link.getNode(false);
         if (node == null) return;
-        JSONObject json = new JSONObject();
-        json.put("op", "stop");
-        json.put("guildId", link.getGuildId());
-        node.send(json.toString());
+        node.send(link.getGuildIdLong(), OutboundOp.STOP, MessageEncoder.stop(link.getGuildId()));
     }
 
     @Override
@@ -107,13 +111,10 @@ public class LavalinkPlayer implements IPlayer {
         if (pause == paused) return;
         LavalinkSocket node = link.getNode(false);
         if (node != null) {
-            JSONObject json = new JSONObject();
-            json.put("op", "pause");
-            json.put("guildId", link.getGuildId());
-            json.put("pause", pause);
-            node.send(json.toString());
+            node.send(link.getGuildIdLong(), OutboundOp.PAUSE, MessageEncoder.pause(link.getGuildId(), pause));
         }
         paused = pause;
+        link.onPlayerStateChange();
 
         if (pause) {
             long timeDiff = System.currentTimeMillis() - updateTime;
@@ -149,12 +150,8 @@ public class LavalinkPlayer implements IPlayer {
         if (getPlayingTrack() == null) throw new IllegalStateException("Not currently playing anything");
         if (!getPlayingTrack().isSeekable()) throw new IllegalStateException("Track cannot be seeked");
 
-        JSONObject json = new JSONObject();
-        json.put("op", "seek");
-        json.put("guildId", link.getGuildId());
-        json.put("position", position);
         //noinspection ConstantConditions
-        link.getNode(true).send(json.toString());
+        link.getNode(true).send(link.getGuildIdLong(), OutboundOp.SEEK, MessageEncoder.seek(link.getGuildId(), position));
         
         this.position = position;
     }
@@ -171,16 +168,14 @@ public class LavalinkPlayer implements IPlayer {
         LavalinkSocket node = link.getNode(false);
         if (node == null) return;
 
-        JSONObject json = new JSONObject();
-        json.put("op", "volume");
-        json.put("guildId", link.getGuildId());
-        json.put("volume", volume);
-        node.send(json.toString());
+        node.send(link.getGuildIdLong(), OutboundOp.VOLUME, MessageEncoder.volume(link.getGuildId(), volume));
     }
 
     @Override
     public int getVolume() {
-        return (int) (getFilters().getVolume() * 100);
+        // Without creating the filters just to read the default
+        Filters filters = this.filters;
+        return (int) ((filters != null ? filters.getVolume() : Filters.DEFAULT_VOLUME) * 100);
     }
 
     /**
@@ -196,27 +191,45 @@ public class LavalinkPlayer implements IPlayer {
     }
 
     public void provideState(JSONObject json) {
-        updateTime = json.getLong("time");
-        position = json.optLong("position", 0);
-        connected = json.optBoolean("connected", true);
+        provideState(json.getLong("time"), json.optLong("position", 0), json.optBoolean("connected", true));
+    }
+
+    /**
+     * Same as {@link #provideState(JSONObject)}, for when the fields have already been read from the message
+     */
+    public void provideState(long time, long position, boolean connected) {
+        this.updateTime = time;
+        this.position = position;
+        this.connected = connected;
     }
 
     @Override
     public void addListener(IPlayerEventListener listener) {
+        List<IPlayerEventListener> listeners = this.listeners;
+        if (listeners == null) {
+            synchronized (this) {
+                listeners = this.listeners;
+                if (listeners == null) listeners = this.listeners = new CopyOnWriteArrayList<>();
+            }
+        }
         listeners.add(listener);
     }
 
     @Override
     public void removeListener(IPlayerEventListener listener) {
-        listeners.remove(listener);
+        List<IPlayerEventListener> listeners = this.listeners;
+        if (listeners != null) listeners.remove(listener);
     }
 
     public void emitEvent(PlayerEvent event) {
-        listeners.forEach(listener -> listener.onEvent(event));
+        LavalinkInternalPlayerEventHandler.INSTANCE.onEvent(event);
+        List<IPlayerEventListener> listeners = this.listeners;
+        if (listeners != null) listeners.forEach(listener -> listener.onEvent(event));
     }
 
     void clearTrack() {
         track = null;
+        link.onPlayerStateChange();
     }
 
     @SuppressWarnings({"unused"})
@@ -228,100 +241,7 @@ public class LavalinkPlayer implements IPlayer {
         LavalinkSocket node = link.getNode(false);
         if (node == null) return;
 
-        JSONObject json = new JSONObject();
-        json.put("op", "filters");
-        json.put("guildId", link.getGuildId());
-
-        // Volume
-        json.put("volume", filters.getVolume());
-
-        // Equalizer
-        JSONArray bands = new JSONArray();
-        int i = -1;
-        for (float f : filters.getBands()) {
-            i++;
-            if (f == 0.0f) continue;
-            JSONObject obj = new JSONObject();
-            obj.put("band", i);
-            obj.put("gain", f);
-            bands.put(obj);
-        }
-        if (bands.length() > 0) json.put("equalizer", bands);
-
-        Timescale timescale = filters.getTimescale();
-        if (timescale != null) {
-            JSONObject obj = new JSONObject();
-            obj.put("speed", timescale.getSpeed());
-            obj.put("pitch", timescale.getPitch());
-            obj.put("rate", timescale.getRate());
-            json.put("timescale", obj);
-        }
-
-        Karaoke karaoke = filters.getKaraoke();
-        if (karaoke != null) {
-            JSONObject obj = new JSONObject();
-            obj.put("level", karaoke.getLevel());
-            obj.put("monoLevel", karaoke.getMonoLevel());
-            obj.put("filterBand", karaoke.getFilterBand());
-            obj.put("filterWidth", karaoke.getFilterWidth());
-            json.put("karaoke", obj);
-        }
-
-        Tremolo tremolo = filters.getTremolo();
-        if (tremolo != null) {
-            JSONObject obj = new JSONObject();
-            obj.put("frequency", tremolo.getFrequency());
-            obj.put("depth", tremolo.getDepth());
-            json.put("tremolo", obj);
-        }
-
-        Vibrato vibrato = filters.getVibrato();
-        if (vibrato != null) {
-            JSONObject obj = new JSONObject();
-            obj.put("frequency", vibrato.getFrequency());
-            obj.put("depth", vibrato.getDepth());
-            json.put("vibrato", obj);
-        }
-
-        Rotation rotation = filters.getRotation();
-        if (rotation != null) {
-            JSONObject obj = new JSONObject();
-            obj.put("rotationHz", rotation.getFrequency());
-            json.put("rotation", obj);
-        }
-
-        Distortion distortion = filters.getDistortion();
-        if (distortion != null) {
-            JSONObject obj = new JSONObject();
-            obj.put("sinOffset", distortion.getSinOffset());
-            obj.put("sinScale", distortion.getSinScale());
-            obj.put("cosOffset", distortion.getCosOffset());
-            obj.put("cosScale", distortion.getCosScale());
-            obj.put("tanOffset", distortion.getTanOffset());
-            obj.put("tanScale", distortion.getTanScale());
-            obj.put("offset", distortion.getOffset());
-            obj.put("scale", distortion.getScale());
-            json.put("distortion", obj);
-        }
-
-        ChannelMix channelMix = filters.getChannelMix();
-        if (channelMix != null) {
-            JSONObject obj = new JSONObject();
-            obj.put("leftToLeft", channelMix.getLeftToLeft());
-            obj.put("leftToRight", channelMix.getLeftToRight());
-            obj.put("rightToLeft", channelMix.getRightToLeft());
-            obj.put("rightToRight", channelMix.getRightToRight());
-            json.put("channelMix", obj);
-        }
-
-        LowPass lowPass = filters.getLowPass();
-        if (lowPass != null) {
-            JSONObject obj = new JSONObject();
-            obj.put("smoothing", lowPass.getSmoothing());
-            json.put("lowPass", obj);
-        }
-
-        node.send(json.toString());
+        node.send(link.getGuildIdLong(), OutboundOp.FILTERS, MessageEncoder.filters(link.getGuildId(), filters));
     }
 
     /**
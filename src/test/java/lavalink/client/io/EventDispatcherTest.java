@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+class EventDispatcherTest {
+
+    private static final int GUILDS = 16;
+    private static final int EVENTS = 500;
+
+    @Test
+    void orderTest() throws InterruptedException {
+        EventDispatcher dispatcher = new EventDispatcher(4);
+        List<List<Integer>> handled = new ArrayList<>();
+        for (int i = 0; i < GUILDS; i++) {
+            handled.add(Collections.synchronizedList(new ArrayList<>()));
+        }
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        CountDownLatch done = new CountDownLatch(GUILDS * EVENTS);
+
+        // Events of a guild arrive in order, interleaved with those of the other guilds
+        for (int event = 0; event < EVENTS; event++) {
+            for (int guild = 0; guild < GUILDS; guild++) {
+                int number = event;
+                List<Integer> list = handled.get(guild);
+                dispatcher.dispatch(guild, () -> {
+                    threads.add(Thread.currentThread());
+                    if (ThreadLocalRandom.current().nextInt(100) == 0) Thread.yield();
+                    list.add(number);
+                    done.countDown();
+                });
+            }
+        }
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        dispatcher.shutdown();
+
+        for (List<Integer> list : handled) {
+            Assertions.assertEquals(EVENTS, list.size());
+            for (int i = 0; i < EVENTS; i++) {
+                Assertions.assertEquals(i, (int) list.get(i));
+            }
+        }
+        Assertions.assertTrue(threads.size() > 1);
+    }
+
+    @Test
+    void shutdownTest() throws InterruptedException {
+        EventDispatcher dispatcher = new EventDispatcher(1);
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = new CountDownLatch(1);
+
+        dispatcher.dispatch(1, () -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.add(1);
+        });
+        dispatcher.dispatch(1, () -> handled.add(2));
+        dispatcher.shutdown();
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+            }
+            release.countDown();
+        }).start();
+
+        // Rejected, but must not overtake the events that are still queued
+        dispatcher.dispatch(1, () -> handled.add(3));
+        Assertions.assertEquals(Arrays.asList(1, 2, 3), handled);
+    }
+
+    @Test
+    void directTest() {
+        EventDispatcher dispatcher = new EventDispatcher(0);
+        List<Thread> threads = new ArrayList<>();
+        dispatcher.dispatch(1, () -> threads.add(Thread.currentThread()));
+        Assertions.assertEquals(Collections.singletonList(Thread.currentThread()), threads);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+class IdleLinkEvictorTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    @Test
+    void wheelTest() {
+        TimerWheel<String> wheel = new TimerWheel<>(8, SECOND, 0);
+        wheel.schedule("a", 2 * SECOND);
+        wheel.schedule("b", 2 * SECOND + 1);
+        wheel.schedule("c", 100 * SECOND);
+        Assertions.assertEquals(3, wheel.size());
+
+        Assertions.assertEquals(Collections.emptyList(), wheel.advance(SECOND));
+        Assertions.assertEquals(Collections.singletonList("a"), wheel.advance(2 * SECOND));
+        Assertions.assertEquals(Collections.singletonList("b"), wheel.advance(3 * SECOND));
+        // Beyond the wheel, so it comes up after one turn
+        Assertions.assertEquals(Collections.singletonList("c"), wheel.advance(7 * SECOND));
+        Assertions.assertEquals(0, wheel.size());
+
+        // Jumping ahead by more than a turn collects everything, and nothing twice
+        wheel.schedule("d", 8 * SECOND);
+        wheel.schedule("e", 12 * SECOND);
+        Assertions.assertEquals(Arrays.asList("d", "e"), wheel.advance(60 * SECOND));
+        Assertions.assertEquals(Collections.emptyList(), wheel.advance(61 * SECOND));
+        // A deadline in the past comes up with the next slot
+        wheel.schedule("f", 0);
+        Assertions.assertEquals(Collections.singletonList("f"), wheel.advance(62 * SECOND));
+    }
+
+    @Test
+    void idleTest() {
+        TestLavalink lavalink = new TestLavalink();
+        lavalink.setIdleLinkTimeout(1, TimeUnit.MINUTES);
+        Link link = lavalink.getLink("1");
+        long start = link.lastUsed;
+
+        lavalink.idleLinkEvictor.sweep(start + 30 * SECOND);
+        Assertions.assertSame(link, lavalink.getExistingLink(1));
+
+        lavalink.idleLinkEvictor.sweep(start + 2 * MINUTE);
+        Assertions.assertNull(lavalink.getExistingLink(1));
+        Assertions.assertEquals(Link.State.DESTROYED, link.getState());
+        Assertions.assertEquals(1, lavalink.getEvictedLinks());
+    }
+
+    @Test
+    void usedTest() {
+        TestLavalink lavalink = new TestLavalink();
+        lavalink.setIdleLinkTimeout(1, TimeUnit.MINUTES);
+        Link link = lavalink.getLink("1");
+        long start = link.lastUsed;
+
+        // Looked up again just before its time was up
+        link.lastUsed = start + 50 * SECOND;
+        lavalink.idleLinkEvictor.sweep(start + 70 * SECOND);
+        Assertions.assertSame(link, lavalink.getExistingLink(1));
+
+        lavalink.idleLinkEvictor.sweep(start + 2 * MINUTE);
+        Assertions.assertNull(lavalink.getExistingLink(1));
+    }
+
+    @Test
+    void lookupTest() {
+        TestLavalink lavalink = new TestLavalink();
+        lavalink.setIdleLinkTimeout(1, TimeUnit.MINUTES);
+        Link link = lavalink.getLink("1");
+        Assertions.assertEquals(1, lavalink.idleLinkEvictor.getScheduled());
+
+        // Lookups leave the wheel alone, and only refresh a timestamp that has become stale
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertSame(link, lavalink.getLink("1"));
+        }
+        Assertions.assertEquals(1, lavalink.idleLinkEvictor.getScheduled());
+        long stale = link.lastUsed - 10 * SECOND;
+        link.lastUsed = stale;
+        lavalink.getLink("1");
+        Assertions.assertTrue(link.lastUsed - stale >= 10 * SECOND);
+        lavalink.shutdown();
+    }
+
+    @Test
+    void connectedTest() {
+        TestLavalink lavalink = new TestLavalink();
+        lavalink.setIdleLinkTimeout(1, TimeUnit.MINUTES);
+        Link link = lavalink.getLink("1");
+        link.setState(Link.State.CONNECTED);
+        long start = link.lastUsed;
+
+        lavalink.idleLinkEvictor.sweep(start + 2 * MINUTE);
+        Assertions.assertSame(link, lavalink.getExistingLink(1));
+        Assertions.assertEquals(0, lavalink.idleLinkEvictor.getScheduled());
+
+        // Scheduled again once it disconnects
+        link.setState(Link.State.NOT_CONNECTED);
+        Assertions.assertEquals(1, lavalink.idleLinkEvictor.getScheduled());
+        lavalink.idleLinkEvictor.sweep(start + 4 * MINUTE);
+        Assertions.assertNull(lavalink.getExistingLink(1));
+    }
+
+    @Test
+    void disabledTest() {
+        TestLavalink lavalink = new TestLavalink();
+        Link link = lavalink.getLink("1");
+        lavalink.idleLinkEvictor.sweep(link.lastUsed + 60 * MINUTE);
+        Assertions.assertSame(link, lavalink.getExistingLink(1));
+
+        // Existing links are picked up when enabled
+        lavalink.setIdleLinkTimeout(1, TimeUnit.MINUTES);
+        lavalink.idleLinkEvictor.sweep(System.nanoTime() + 2 * MINUTE);
+        Assertions.assertNull(lavalink.getExistingLink(1));
+    }
+}
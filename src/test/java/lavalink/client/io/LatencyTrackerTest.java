@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+class LatencyTrackerTest {
+
+    @Test
+    void emptyTest() {
+        LatencyTracker tracker = new LatencyTracker();
+        Assertions.assertEquals(-1, tracker.getSmoothed());
+        Assertions.assertEquals(-1, tracker.getLast());
+        Assertions.assertEquals(-1, tracker.getPercentile(50));
+        Assertions.assertEquals(0, tracker.getSampleCount());
+    }
+
+    @Test
+    void smoothingTest() {
+        LatencyTracker tracker = new LatencyTracker();
+        tracker.record(TimeUnit.MILLISECONDS.toNanos(100));
+        Assertions.assertEquals(100, tracker.getSmoothed(), 0.001);
+
+        tracker.record(TimeUnit.MILLISECONDS.toNanos(900));
+        Assertions.assertEquals(200, tracker.getSmoothed(), 0.001);
+        Assertions.assertEquals(900, tracker.getLast(), 0.001);
+    }
+
+    @Test
+    void percentileTest() {
+        LatencyTracker tracker = new LatencyTracker();
+        // More than fit, so that the first samples are overwritten
+        for (int i = 1; i <= 164; i++) {
+            tracker.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        Assertions.assertEquals(64, tracker.getSampleCount());
+        Assertions.assertEquals(101, tracker.getPercentile(0), 0.001);
+        Assertions.assertEquals(132, tracker.getPercentile(50), 0.001);
+        Assertions.assertEquals(164, tracker.getPercentile(100), 0.001);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> tracker.getPercentile(101));
+    }
+}
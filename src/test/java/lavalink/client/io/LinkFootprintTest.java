@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import lavalink.client.RequireSystemProperty;
+import lavalink.client.io.filters.Filters;
+import lavalink.client.player.LavalinkPlayer;
+import lavalink.client.player.event.PlayerEventListenerAdapter;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class LinkFootprintTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LinkFootprintTest.class);
+    private static final int GUILDS = 100_000;
+    private static final String ENDPOINT = "rotterdam123.discord.media:443";
+
+    private static TestLavalink.TestNode node(TestLavalink lavalink, String name) {
+        TestLavalink.TestNode node = lavalink.createNode(name).setAvailable(true).setStats(0);
+        // Never connected, so whatever is sent would pile up
+        node.setSendQueueCapacity(0);
+        lavalink.nodes.add(node);
+        return node;
+    }
+
+    private static JSONObject voiceServerUpdate(long guild) {
+        return new JSONObject().put("token", "0123456789abcdef").put("guild_id", Long.toString(guild)).put("endpoint", ENDPOINT);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void voiceServerUpdateTest() {
+        TestLavalink lavalink = new TestLavalink();
+        TestLavalink.TestNode a = node(lavalink, "a");
+        Link link = lavalink.getLink("1");
+        Assertions.assertNull(link.getLastVoiceServerUpdate());
+
+        link.changeNode(a);
+        link.onVoiceServerUpdate(voiceServerUpdate(1), "session");
+        Assertions.assertEquals(Link.State.CONNECTED, link.getState());
+        Assertions.assertEquals("rotterdam", link.getVoiceRegion());
+        Assertions.assertEquals(ENDPOINT, link.getVoiceEndpoint());
+
+        // Replayed from the fields when the link moves
+        TestLavalink.TestNode b = node(lavalink, "b");
+        link.changeNode(b);
+        JSONObject update = link.getLastVoiceServerUpdate();
+        Assertions.assertNotNull(update);
+        Assertions.assertEquals("0123456789abcdef", update.getString("token"));
+        Assertions.assertEquals("1", update.getString("guild_id"));
+        Assertions.assertEquals(ENDPOINT, update.getString("endpoint"));
+    }
+
+    @Test
+    void playerTest() {
+        LavalinkPlayer player = new TestLavalink().getLink("1").getPlayer();
+        // Reading the volume does not create the filters
+        Assertions.assertEquals(100, player.getVolume());
+        Assertions.assertEquals(15, player.getFilters().getBands().length);
+        Assertions.assertEquals(0.0f, player.getFilters().getBands()[3]);
+        Assertions.assertEquals(0.5f, player.getFilters().setBand(3, 0.5f).getBands()[3]);
+        Assertions.assertEquals(0.0f, player.getFilters().clear().getBands()[3]);
+
+        // The bands are created once, so that changes to them stick
+        Filters filters = new Filters(null, () -> {});
+        Assertions.assertFalse(filters.hasBands());
+        float[] bands = filters.getBands();
+        Assertions.assertTrue(filters.hasBands());
+        bands[2] = 0.3f;
+        Assertions.assertSame(bands, filters.getBands());
+        Assertions.assertEquals(0.3f, filters.getBands()[2]);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Take the lowest of a few collections, as a single one may not collect everything
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    @Test
+    @RequireSystemProperty("benchmark")
+    void benchmark() {
+        TestLavalink lavalink = new TestLavalink();
+        TestLavalink.TestNode node = node(lavalink, "a");
+        PlayerEventListenerAdapter listener = new PlayerEventListenerAdapter();
+
+        long before = usedMemory();
+        for (long guild = 1; guild <= GUILDS; guild++) {
+            lavalink.getLink(Long.toString(guild));
+        }
+        long bare = usedMemory();
+        // An idle guild has a player that has never played anything, as after a command that only reads it
+        for (Link link : lavalink.getLinks()) {
+            link.getPlayer().getVolume();
+        }
+        long idle = usedMemory();
+        for (Link link : lavalink.getLinks()) {
+            link.changeNode(node);
+            link.onVoiceServerUpdate(voiceServerUpdate(link.getGuildIdLong()), "0123456789abcdef0123456789abcdef");
+            LavalinkPlayer player = link.getPlayer();
+            player.addListener(listener);
+            player.getFilters().setVolume(0.8f).setBand(0, 0.2f).commit();
+        }
+        long active = usedMemory();
+
+        log.info("Link: {} bytes, idle guild: {} bytes, active guild: {} bytes, over {} guilds",
+                (bare - before) / GUILDS, (idle - before) / GUILDS, (active - before) / GUILDS, GUILDS);
+        Assertions.assertEquals(GUILDS, lavalink.getLinks().size());
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+class LinkRegistryTest {
+
+    private final TestLavalink lavalink = new TestLavalink();
+    private final LinkRegistry<Link> registry = new LinkRegistry<>();
+
+    private Link getOrCreate(long guild) {
+        Link link = registry.get(guild);
+        return link != null ? link : registry.putIfAbsent(guild, lavalink.buildNewLink(Long.toString(guild)));
+    }
+
+    @Test
+    void basicTest() {
+        Assertions.assertNull(registry.get(1));
+        Link link = getOrCreate(1);
+        Assertions.assertEquals(1, link.getGuildIdLong());
+        Assertions.assertSame(link, getOrCreate(1));
+        Assertions.assertSame(link, registry.get(1));
+        Assertions.assertEquals(1, registry.size());
+
+        Assertions.assertSame(link, registry.remove(1));
+        Assertions.assertNull(registry.remove(1));
+        Assertions.assertNull(registry.get(1));
+        Assertions.assertEquals(0, registry.size());
+    }
+
+    @Test
+    void iteratorRemoveTest() {
+        List<Link> removed = new ArrayList<>();
+        LinkRegistry<Link> registry = new LinkRegistry<>(removed::add);
+        Link a = registry.putIfAbsent(1, lavalink.buildNewLink("1"));
+        registry.putIfAbsent(2, lavalink.buildNewLink("2"));
+
+        Assertions.assertTrue(registry.values().removeIf(link -> link == a));
+        Assertions.assertNull(registry.get(1));
+        Assertions.assertNotNull(registry.get(2));
+        Assertions.assertEquals(Collections.singletonList(a), removed);
+
+        // A link that has been replaced in the meantime leaves the new one alone
+        Iterator<Link> iterator = registry.values().iterator();
+        Link b = iterator.next();
+        registry.remove(2);
+        Link replacement = registry.putIfAbsent(2, lavalink.buildNewLink("2"));
+        iterator.remove();
+        Assertions.assertSame(replacement, registry.get(2));
+        Assertions.assertEquals(Arrays.asList(a, b), removed);
+        Assertions.assertThrows(IllegalStateException.class, iterator::remove);
+    }
+
+    @Test
+    void randomTest() {
+        // Snowflakes of guilds created around the same time, so that many land near each other
+        Random random = new Random(1);
+        long base = 174820236481134592L;
+        Map<Long, Link> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            long guild = base + ((long) random.nextInt(5000) << 22);
+            if (random.nextInt(3) == 0) {
+                Assertions.assertSame(expected.remove(guild), registry.remove(guild));
+            } else {
+                Link link = getOrCreate(guild);
+                Link previous = expected.putIfAbsent(guild, link);
+                if (previous != null) Assertions.assertSame(previous, link);
+            }
+        }
+
+        Assertions.assertEquals(expected.size(), registry.size());
+        for (Map.Entry<Long, Link> entry : expected.entrySet()) {
+            Assertions.assertSame(entry.getValue(), registry.get(entry.getKey()));
+        }
+        Set<Link> iterated = new HashSet<>(registry.values());
+        Assertions.assertEquals(new HashSet<>(expected.values()), iterated);
+    }
+
+    @Test
+    void concurrentTest() throws InterruptedException {
+        // Links that stay while others come and go must always be found
+        for (long guild = 0; guild < 1000; guild += 2) {
+            getOrCreate(guild);
+        }
+        AtomicBoolean done = new AtomicBoolean(false);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                for (long guild = 0; guild < 1000; guild += 2) {
+                    Link link = registry.get(guild);
+                    if (link == null || link.getGuildIdLong() != guild) {
+                        failure.set("Lookup of " + guild + " returned " + link);
+                        return;
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int round = 0; round < 50; round++) {
+            for (long guild = 1; guild < 1000; guild += 2) {
+                getOrCreate(guild);
+            }
+            for (long guild = 1; guild < 1000; guild += 2) {
+                registry.remove(guild);
+            }
+        }
+        done.set(true);
+        reader.join();
+        Assertions.assertNull(failure.get());
+    }
+
+    @Test
+    void reentrantTest() {
+        // Links may look up links while they are built, including their own guild
+        TestLavalink lavalink = new TestLavalink() {
+            @Override
+            protected Link buildNewLink(String guildId) {
+                long guild = Long.parseLong(guildId);
+                Assertions.assertNull(getExistingLink(guild));
+                if (guild < 20) getLink(Long.toString(guild + 1));
+                return super.buildNewLink(guildId);
+            }
+        };
+        Link link = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> lavalink.getLink("1"));
+        Assertions.assertSame(link, lavalink.getExistingLink(1));
+        Assertions.assertEquals(20, lavalink.getLinks().size());
+        lavalink.shutdown();
+    }
+
+    @Test
+    void raceTest() throws Exception {
+        // Both threads build a link, only one of them is added
+        CountDownLatch building = new CountDownLatch(2);
+        AtomicInteger added = new AtomicInteger();
+        TestLavalink lavalink = new TestLavalink() {
+            @Override
+            protected Link buildNewLink(String guildId) {
+                building.countDown();
+                try {
+                    building.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return super.buildNewLink(guildId);
+            }
+
+            @Override
+            protected void onLinkAdded(Link link) {
+                added.incrementAndGet();
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Link> a = executor.submit(() -> lavalink.getLink("1"));
+            Future<Link> b = executor.submit(() -> lavalink.getLink("1"));
+            Assertions.assertSame(a.get(), b.get());
+            Assertions.assertEquals(0, building.getCount());
+            Assertions.assertEquals(1, added.get());
+            Assertions.assertEquals(1, lavalink.getLinks().size());
+        } finally {
+            executor.shutdown();
+            lavalink.shutdown();
+        }
+    }
+
+    @Test
+    void staleMessageTest() {
+        TestLavalink.TestNode node = lavalink.createNode("a");
+        node.onMessage("{\"op\":\"playerUpdate\",\"guildId\":\"5\",\"state\":{\"time\":1500467109,\"position\":60000}}");
+        node.onMessage("{\"op\":\"event\",\"type\":\"TrackStartEvent\",\"guildId\":\"6\",\"track\":\"\"}");
+        Assertions.assertNull(lavalink.getExistingLink(5));
+        Assertions.assertNull(lavalink.getExistingLink(6));
+        Assertions.assertTrue(lavalink.getLinks().isEmpty());
+    }
+}
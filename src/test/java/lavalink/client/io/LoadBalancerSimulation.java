@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the real {@link LavalinkLoadBalancer} against nodes that are never connected, whose stats are scripted from
+ * the number of guilds they have. Guilds join and leave at random, and nodes fail, recover and join in between.
+ * <p>
+ * Time is simulated: every {@link #setGuildsPerMinute(int) few guilds}, a minute passes and all nodes send stats.
+ * Migrations are not paced, so that each event is handled completely before the next.
+ */
+class LoadBalancerSimulation {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadBalancerSimulation.class);
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final TestLavalink lavalink = new TestLavalink();
+    private final Random random;
+    private final Map<String, SimulatedNode> nodes = new LinkedHashMap<>();
+    private int guildsPerMinute = 1000;
+
+    /** Guilds that have a link, swapped with the last one on removal */
+    private long[] guilds = new long[1024];
+    private int guildCount = 0;
+    private long nextGuild = 1;
+    private int sinceStats = 0;
+    private long minute = 0;
+
+    /** Nanoseconds per selection, in order */
+    private long[] selections = new long[1024];
+    private int selectionCount = 0;
+    /** Per minute, how many guilds the node that got the most of them got */
+    private final List<Double> herding = new ArrayList<>();
+    private final Map<LavalinkSocket, Integer> minuteSelections = new LinkedHashMap<>();
+    private final List<String> events = new ArrayList<>();
+
+    LoadBalancerSimulation(long seed) {
+        this.random = new Random(seed);
+        lavalink.loadBalancer.setMigrationRate(0, 0);
+        lavalink.loadBalancer.setRebalancing(true);
+    }
+
+    LavalinkLoadBalancer getLoadBalancer() {
+        return lavalink.loadBalancer;
+    }
+
+    /**
+     * @param guildsPerMinute how many guilds join or leave between two stats messages
+     */
+    LoadBalancerSimulation setGuildsPerMinute(int guildsPerMinute) {
+        this.guildsPerMinute = guildsPerMinute;
+        return this;
+    }
+
+    /**
+     * Adds a node, and moves guilds to it until the nodes are balanced
+     *
+     * @param capacity how many guilds the node can take before it is fully loaded
+     */
+    LoadBalancerSimulation addNode(String name, int cores, int capacity) {
+        TestLavalink.TestNode node = lavalink.createNode(name).setAvailable(true);
+        SimulatedNode simulated = new SimulatedNode(node, cores, capacity);
+        nodes.put(name, simulated);
+        simulated.sendStats();
+        lavalink.nodes.add(node);
+        if (guildCount > 0) rebalance("join " + name);
+        return this;
+    }
+
+    LoadBalancerSimulation failNode(String name) {
+        SimulatedNode node = nodes.get(name);
+        long migrated = lavalink.loadBalancer.getMigratedLinks();
+        long start = System.nanoTime();
+        node.node.setAvailable(false);
+        lavalink.loadBalancer.onNodeDisconnect(node.node);
+        long elapsed = System.nanoTime() - start;
+        events.add(String.format("fail %s: %d links migrated in %.1f ms", name,
+                lavalink.loadBalancer.getMigratedLinks() - migrated, elapsed / 1e6));
+        return this;
+    }
+
+    LoadBalancerSimulation recoverNode(String name) {
+        SimulatedNode node = nodes.get(name);
+        node.node.setAvailable(true);
+        node.sendStats();
+        rebalance("recover " + name);
+        return this;
+    }
+
+    private void rebalance(String event) {
+        LavalinkLoadBalancer loadBalancer = lavalink.loadBalancer;
+        long before = loadBalancer.getRebalancedIdleLinks();
+        long start = System.nanoTime();
+        int runs = 0;
+        long moved;
+        do {
+            moved = loadBalancer.getRebalancedIdleLinks();
+            loadBalancer.rebalance();
+            runs++;
+        } while (loadBalancer.getRebalancedIdleLinks() != moved);
+        long elapsed = System.nanoTime() - start;
+        events.add(String.format("%s: %d links rebalanced over %d runs in %.1f ms", event,
+                loadBalancer.getRebalancedIdleLinks() - before, runs, elapsed / 1e6));
+    }
+
+    /**
+     * Lets guilds join and leave at random
+     *
+     * @param joins        how many guilds join
+     * @param leaveChance  chance that a step is a guild leaving instead of joining
+     */
+    LoadBalancerSimulation churn(int joins, double leaveChance) {
+        int joined = 0;
+        while (joined < joins) {
+            if (guildCount > 0 && random.nextDouble() < leaveChance) {
+                leave();
+            } else {
+                join();
+                joined++;
+            }
+            if (++sinceStats >= guildsPerMinute) nextMinute();
+        }
+        return this;
+    }
+
+    private void join() {
+        long guild = nextGuild++;
+        Link link = lavalink.getLink(Long.toString(guild));
+        long start = System.nanoTime();
+        LavalinkSocket node = link.getNode(true);
+        long elapsed = System.nanoTime() - start;
+        link.setState(Link.State.CONNECTED);
+
+        if (selectionCount == selections.length) selections = Arrays.copyOf(selections, selectionCount * 2);
+        selections[selectionCount++] = elapsed;
+        minuteSelections.merge(node, 1, Integer::sum);
+        if (guildCount == guilds.length) guilds = Arrays.copyOf(guilds, guildCount * 2);
+        guilds[guildCount++] = guild;
+    }
+
+    private void leave() {
+        int index = random.nextInt(guildCount);
+        long guild = guilds[index];
+        guilds[index] = guilds[--guildCount];
+        Link link = lavalink.getExistingLink(Long.toString(guild));
+        if (link != null) link.destroy();
+    }
+
+    private void nextMinute() {
+        int total = 0;
+        int max = 0;
+        for (int count : minuteSelections.values()) {
+            total += count;
+            max = Math.max(max, count);
+        }
+        if (total > 0) herding.add((double) max / total);
+        minuteSelections.clear();
+
+        sinceStats = 0;
+        minute++;
+        for (SimulatedNode node : nodes.values()) {
+            if (node.node.isAvailable()) node.sendStats();
+        }
+    }
+
+    Report report(String name) {
+        return new Report(name);
+    }
+
+    /**
+     * A node whose load grows with the number of guilds it has, relative to its capacity
+     */
+    private class SimulatedNode {
+        private final TestLavalink.TestNode node;
+        private final int cores;
+        private final int capacity;
+
+        private SimulatedNode(TestLavalink.TestNode node, int cores, int capacity) {
+            this.node = node;
+            this.cores = cores;
+            this.capacity = capacity;
+        }
+
+        private void sendStats() {
+            int players = node.getAssignedPlayers();
+            double utilization = (double) players / capacity;
+            double noise = random.nextGaussian() * 0.02;
+            double systemLoad = Math.max(0, Math.min(1, 0.05 + 0.9 * utilization + noise));
+            // Frames are lost once the node is overloaded
+            int deficit = utilization > 0.9 ? (int) ((utilization - 0.9) * 3000) : 0;
+            // Of the 1 GB heap in the stats
+            long memUsed = 64L * 1024 * 1024 + (long) (utilization * 768 * 1024 * 1024);
+            node.setStats(TestLavalink.stats(players, cores, systemLoad, systemLoad * 0.8, memUsed, deficit), minute * MINUTE);
+        }
+    }
+
+    class Report {
+        final String name;
+        final int guilds;
+        final double selectionsPerSecond;
+        final long p50;
+        final long p99;
+        final long max;
+        /** Coefficient of variation of the utilization of the available nodes */
+        final double spread;
+        /** Utilization of the most utilized available node */
+        final double maxUtilization;
+        /** Average over all minutes of the share of new guilds that went to a single node */
+        final double herding;
+        final List<String> events;
+
+        private Report(String name) {
+            this.name = name;
+            this.guilds = guildCount;
+
+            long[] sorted = Arrays.copyOf(selections, selectionCount);
+            Arrays.sort(sorted);
+            long total = 0;
+            for (long selection : sorted) {
+                total += selection;
+            }
+            this.selectionsPerSecond = total == 0 ? 0 : sorted.length * 1e9 / total;
+            this.p50 = sorted.length == 0 ? 0 : sorted[sorted.length / 2];
+            this.p99 = sorted.length == 0 ? 0 : sorted[(int) (sorted.length * 0.99)];
+            this.max = sorted.length == 0 ? 0 : sorted[sorted.length - 1];
+
+            double sum = 0;
+            double sumSquares = 0;
+            double maxUtilization = 0;
+            int count = 0;
+            for (SimulatedNode node : nodes.values()) {
+                if (!node.node.isAvailable()) continue;
+                double utilization = (double) node.node.getAssignedPlayers() / node.capacity;
+                sum += utilization;
+                sumSquares += utilization * utilization;
+                maxUtilization = Math.max(maxUtilization, utilization);
+                count++;
+            }
+            double mean = count == 0 ? 0 : sum / count;
+            this.spread = mean == 0 ? 0 : Math.sqrt(Math.max(0, sumSquares / count - mean * mean)) / mean;
+            this.maxUtilization = maxUtilization;
+
+            double herdingSum = 0;
+            for (double share : LoadBalancerSimulation.this.herding) {
+                herdingSum += share;
+            }
+            this.herding = LoadBalancerSimulation.this.herding.isEmpty() ? 0 : herdingSum / LoadBalancerSimulation.this.herding.size();
+            this.events = new ArrayList<>(LoadBalancerSimulation.this.events);
+        }
+
+        void log() {
+            log.info("{}: {} guilds, {} selections/s, latency p50 {} ns, p99 {} ns, max {} ns",
+                    name, guilds, Math.round(selectionsPerSecond), p50, p99, max);
+            log.info("{}: utilization spread {}, busiest node at {}%, herding {}%", name,
+                    Math.round(spread * 1000) / 1000d, Math.round(maxUtilization * 1000) / 10d, Math.round(herding * 1000) / 10d);
+            for (String event : events) {
+                log.info("{}: {}", name, event);
+            }
+        }
+    }
+}
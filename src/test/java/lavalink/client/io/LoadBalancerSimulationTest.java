@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import lavalink.client.RequireSystemProperty;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+class LoadBalancerSimulationTest {
+
+    @Test
+    void failoverTest() {
+        LoadBalancerSimulation simulation = new LoadBalancerSimulation(1)
+                .setGuildsPerMinute(100)
+                .addNode("a", 4, 2000)
+                .addNode("b", 4, 2000)
+                .addNode("c", 4, 2000)
+                .churn(3000, 0.2)
+                .failNode("b");
+
+        LoadBalancerSimulation.Report report = simulation.report("failover");
+        report.log();
+        Assertions.assertTrue(report.spread < 0.2, "Spread " + report.spread);
+        Assertions.assertTrue(report.events.get(0).startsWith("fail b: "), report.events.get(0));
+    }
+
+    @Test
+    void joinTest() {
+        LoadBalancerSimulation simulation = new LoadBalancerSimulation(1)
+                .setGuildsPerMinute(100)
+                .addNode("a", 4, 2000)
+                .addNode("b", 4, 2000)
+                .churn(2000, 0)
+                .addNode("c", 4, 2000);
+
+        LoadBalancerSimulation.Report report = simulation.report("join");
+        report.log();
+        // The new node takes its share, within the rebalance threshold
+        Assertions.assertTrue(report.maxUtilization < 1.2 * 2000 / 3 / 2000, "Busiest at " + report.maxUtilization);
+    }
+
+    @Test
+    void multiFactorTest() {
+        LoadBalancerSimulation simulation = new LoadBalancerSimulation(1).setGuildsPerMinute(100);
+        simulation.getLoadBalancer().setScoringModel(ScoringModel.multiFactor());
+        simulation.addNode("a", 4, 1000)
+                .addNode("b", 8, 2000)
+                .addNode("c", 16, 4000)
+                .churn(4000, 0.2)
+                .addNode("d", 16, 4000);
+
+        LoadBalancerSimulation.Report report = simulation.report("multiFactor");
+        report.log();
+        // Each node takes a share of the guilds that matches its number of cores
+        Assertions.assertTrue(report.spread < 0.2, "Spread " + report.spread);
+    }
+
+    @Test
+    @RequireSystemProperty("benchmark")
+    void benchmark() {
+        Map<String, NodeSelectionStrategy> strategies = new LinkedHashMap<>();
+        strategies.put("leastPenalty", NodeSelectionStrategy.leastPenalty());
+        strategies.put("powerOfTwoChoices", NodeSelectionStrategy.powerOfTwoChoices());
+        strategies.put("weightedRandom", NodeSelectionStrategy.weightedRandom());
+        strategies.put("consistentHash", NodeSelectionStrategy.consistentHash());
+        Map<String, ScoringModel> models = new LinkedHashMap<>();
+        models.put("latest", ScoringModel.latest());
+        models.put("predictive", ScoringModel.predictive(2, TimeUnit.MINUTES));
+        models.put("multiFactor", ScoringModel.multiFactor());
+
+        strategies.forEach((strategyName, strategy) -> models.forEach((modelName, model) -> {
+            LoadBalancerSimulation simulation = new LoadBalancerSimulation(42);
+            simulation.getLoadBalancer().setSelectionStrategy(strategy);
+            simulation.getLoadBalancer().setScoringModel(model);
+            for (int i = 0; i < 10; i++) {
+                int cores = 4 << (i % 3);
+                simulation.addNode("node-" + i, cores, cores * 1000);
+            }
+            simulation.churn(100_000, 0.3)
+                    .failNode("node-3")
+                    .churn(10_000, 0.3)
+                    .recoverNode("node-3")
+                    .addNode("node-10", 16, 16000)
+                    .churn(10_000, 0.3)
+                    .report(strategyName + "/" + modelName)
+                    .log();
+        }));
+    }
+}
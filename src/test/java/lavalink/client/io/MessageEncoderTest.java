@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import lavalink.client.io.filters.Filters;
+import lavalink.client.io.filters.Timescale;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class MessageEncoderTest {
+
+    @Test
+    void simpleOpsTest() {
+        Assertions.assertEquals("{\"op\":\"stop\",\"guildId\":\"174820236481134592\"}",
+                MessageEncoder.stop("174820236481134592"));
+        Assertions.assertEquals("{\"op\":\"destroy\",\"guildId\":\"1\"}",
+                MessageEncoder.destroy("1"));
+        Assertions.assertEquals("{\"op\":\"pause\",\"guildId\":\"1\",\"pause\":true}",
+                MessageEncoder.pause("1", true));
+        Assertions.assertEquals("{\"op\":\"seek\",\"guildId\":\"1\",\"position\":60000}",
+                MessageEncoder.seek("1", 60000));
+        Assertions.assertEquals("{\"op\":\"volume\",\"guildId\":\"1\",\"volume\":150}",
+                MessageEncoder.volume("1", 150));
+    }
+
+    @Test
+    void playTest() {
+        Assertions.assertEquals("{\"op\":\"play\",\"guildId\":\"1\",\"track\":\"QAAA+/=\",\"startTime\":0,\"pause\":false,\"volume\":100}",
+                MessageEncoder.play("1", "QAAA+/=", 0, false, 100));
+        Assertions.assertEquals("{\"op\":\"play\",\"guildId\":\"1\",\"track\":\"QAAA\",\"startTime\":10,\"endTime\":20,\"pause\":true,\"volume\":5}",
+                MessageEncoder.play("1", "QAAA", 10, 20, true, 5));
+    }
+
+    @Test
+    void voiceUpdateTest() {
+        Assertions.assertEquals("{\"op\":\"voiceUpdate\",\"guildId\":\"1\",\"sessionId\":\"abc\"," +
+                        "\"event\":{\"token\":\"t\\\"1\",\"guild_id\":\"1\",\"endpoint\":\"rotterdam123.discord.media:443\"}}",
+                MessageEncoder.voiceUpdate("1", "abc", "t\"1", "rotterdam123.discord.media:443"));
+        Assertions.assertEquals("{\"op\":\"voiceUpdate\",\"guildId\":\"1\",\"sessionId\":\"abc\"," +
+                        "\"event\":{\"token\":\"t\",\"guild_id\":\"1\",\"endpoint\":null}}",
+                MessageEncoder.voiceUpdate("1", "abc", "t", null));
+    }
+
+    @Test
+    void filtersTest() {
+        Filters filters = new Filters(null, () -> {})
+                .setVolume(0.5f)
+                .setBand(1, 0.25f)
+                .setBand(14, -0.25f)
+                .setTimescale(new Timescale().setSpeed(1.5f));
+
+        Assertions.assertEquals("{\"op\":\"filters\",\"guildId\":\"1\",\"volume\":0.5," +
+                        "\"equalizer\":[{\"band\":1,\"gain\":0.25},{\"band\":14,\"gain\":-0.25}]," +
+                        "\"timescale\":{\"speed\":1.5,\"pitch\":1.0,\"rate\":1.0}}",
+                MessageEncoder.filters("1", filters));
+        Assertions.assertEquals("{\"op\":\"filters\",\"guildId\":\"1\",\"volume\":1.0}",
+                MessageEncoder.filters("1", new Filters(null, () -> {})));
+    }
+
+    @Test
+    void escapeTest() {
+        StringBuilder sb = new StringBuilder();
+        MessageEncoder.appendString(sb, "a\"b\\c\nd\u0001");
+        Assertions.assertEquals("\"a\\\"b\\\\c\\nd\\u0001\"", sb.toString());
+    }
+
+    @Test
+    void nullTest() {
+        StringBuilder sb = new StringBuilder();
+        MessageEncoder.appendString(sb, null);
+        Assertions.assertEquals("null", sb.toString());
+
+        // No session id before READY, which leaves the key out
+        Assertions.assertEquals("{\"op\":\"voiceUpdate\",\"guildId\":\"1\"," +
+                        "\"event\":{\"token\":null,\"guild_id\":\"1\",\"endpoint\":null}}",
+                MessageEncoder.voiceUpdate("1", null, null, null));
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class MigrationPacerTest {
+
+    @Test
+    void unpacedTest() {
+        TestLavalink lavalink = new TestLavalink();
+        LavalinkSocket from = lavalink.createNode("from");
+        LavalinkSocket to = lavalink.createNode("to");
+        MigrationPacer pacer = new MigrationPacer(lavalink, 0, 0);
+
+        Link link = lavalink.getLink("1");
+        link.changeNode(from);
+        pacer.submit(new MigrationPacer.Pending(link, from, System.nanoTime()), to);
+
+        Assertions.assertSame(to, link.getNode(false));
+        Assertions.assertEquals(1, pacer.getMigrated());
+    }
+
+    @Test
+    void pacedTest() throws InterruptedException {
+        TestLavalink lavalink = new TestLavalink();
+        LavalinkSocket from = lavalink.createNode("from");
+        LavalinkSocket to = lavalink.createNode("to");
+        // Only the burst is moved within the time of this test
+        MigrationPacer pacer = new MigrationPacer(lavalink, 0.1, 2);
+
+        for (int i = 1; i <= 5; i++) {
+            Link link = lavalink.getLink(Integer.toString(i));
+            link.changeNode(from);
+            pacer.submit(new MigrationPacer.Pending(link, from, System.nanoTime()), to);
+        }
+        Thread.sleep(200);
+
+        Assertions.assertEquals(2, pacer.getMigrated());
+        Assertions.assertEquals(3, pacer.getBacklog(to));
+        Assertions.assertSame(to, lavalink.getLink("1").getNode(false));
+        Assertions.assertSame(from, lavalink.getLink("5").getNode(false));
+        Assertions.assertTrue(pacer.getOldestPending(to) > 0);
+
+        // Links that were waiting for a node that is lost as well are handed back
+        Assertions.assertEquals(3, pacer.cancel(to).size());
+        Assertions.assertEquals(0, pacer.getBacklog(to));
+    }
+
+    @Test
+    void movedMeanwhileTest() {
+        TestLavalink lavalink = new TestLavalink();
+        LavalinkSocket from = lavalink.createNode("from");
+        LavalinkSocket to = lavalink.createNode("to");
+        LavalinkSocket other = lavalink.createNode("other");
+        MigrationPacer pacer = new MigrationPacer(lavalink, 0, 0);
+
+        Link link = lavalink.getLink("1");
+        link.changeNode(other);
+        pacer.submit(new MigrationPacer.Pending(link, from, System.nanoTime()), to);
+
+        Assertions.assertSame(other, link.getNode(false));
+        Assertions.assertEquals(0, pacer.getMigrated());
+    }
+}
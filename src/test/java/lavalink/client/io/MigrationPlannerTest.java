@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class MigrationPlannerTest {
+
+    private static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    @Test
+    void spreadTest() {
+        int[] plan = MigrationPlanner.plan(1000, new int[]{0, 0, 100}, new int[]{NO_LIMIT, NO_LIMIT, NO_LIMIT}, null);
+        int[] counts = count(plan, 3);
+
+        // The first two nodes take 100 each before the third is as good as them, then all three are filled evenly
+        Assertions.assertEquals(1000, counts[0] + counts[1] + counts[2]);
+        Assertions.assertTrue(Math.abs(counts[0] - counts[1]) <= 1);
+        Assertions.assertTrue(Math.abs(counts[0] - 100 - counts[2]) <= 1);
+    }
+
+    @Test
+    void capacityTest() {
+        int[] plan = MigrationPlanner.plan(100, new int[]{0, 500}, new int[]{30, NO_LIMIT}, null);
+        int[] counts = count(plan, 2);
+        Assertions.assertEquals(30, counts[0]);
+        Assertions.assertEquals(70, counts[1]);
+    }
+
+    @Test
+    void overCapacityTest() {
+        int[] plan = MigrationPlanner.plan(10, new int[]{0, 0}, new int[]{2, 3}, null);
+        int[] counts = count(plan, 2);
+        // Once both are full, the rest is spread as if there were no limits
+        Assertions.assertEquals(5, counts[0]);
+        Assertions.assertEquals(5, counts[1]);
+    }
+
+    @Test
+    void weightTest() {
+        // A link on the first node is worth four times as much as on the second, which has four times the cores
+        int[] plan = MigrationPlanner.plan(100, new int[]{0, 0}, new double[]{2, 0.5},
+                new int[]{NO_LIMIT, NO_LIMIT}, null);
+        int[] counts = count(plan, 2);
+        Assertions.assertTrue(Math.abs(counts[0] - 20) <= 1);
+        Assertions.assertTrue(Math.abs(counts[1] - 80) <= 1);
+    }
+
+    @Test
+    void linkPenaltyTest() {
+        // Even links avoid node 0, odd links avoid node 1
+        int[] plan = MigrationPlanner.plan(10, new int[]{0, 0}, new int[]{NO_LIMIT, NO_LIMIT},
+                (link, node) -> link % 2 == node ? 1000 : 0);
+        for (int i = 0; i < plan.length; i++) {
+            Assertions.assertEquals(i % 2 == 0 ? 1 : 0, plan[i]);
+        }
+    }
+
+    private static int[] count(int[] plan, int nodes) {
+        int[] counts = new int[nodes];
+        for (int node : plan) {
+            counts[node]++;
+        }
+        return counts;
+    }
+}
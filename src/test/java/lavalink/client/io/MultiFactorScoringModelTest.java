@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+class MultiFactorScoringModelTest {
+
+    private static final long MB = 1024 * 1024;
+
+    private static PenaltySnapshot score(ScoringModel model, RemoteStats stats) {
+        StatsHistory history = new StatsHistory(16);
+        history.record(stats, 0);
+        return model.score(stats, history, true);
+    }
+
+    @Test
+    void defaultTest() {
+        // On a node with 4 cores, only some memory in use and no foreign load, the penalties are the same as by default
+        RemoteStats stats = TestLavalink.stats(100, 4, 0.3, 0.3, 0, 500);
+        PenaltySnapshot latest = score(ScoringModel.latest(), stats);
+        PenaltySnapshot multiFactor = score(ScoringModel.multiFactor(), stats);
+        Assertions.assertEquals(latest.getCpuPenalty(), multiFactor.getCpuPenalty());
+        Assertions.assertEquals(latest.getDeficitFramePenalty(), multiFactor.getDeficitFramePenalty());
+        Assertions.assertEquals(latest.getNullFramePenalty(), multiFactor.getNullFramePenalty());
+        Assertions.assertEquals(0, multiFactor.getMemoryPenalty());
+        Assertions.assertEquals(1, multiFactor.getPlayerWeight());
+        Assertions.assertEquals(100, multiFactor.getPlayerPenalty(100));
+    }
+
+    @Test
+    void coresTest() {
+        MultiFactorScoringModel model = ScoringModel.multiFactor();
+        Assertions.assertEquals(0.125, score(model, TestLavalink.stats(0, 32, 0, 0, 0, -1)).getPlayerWeight());
+        Assertions.assertEquals(4, score(model, TestLavalink.stats(0, 1, 0, 0, 0, -1)).getPlayerWeight());
+        Assertions.assertEquals(25, score(model, TestLavalink.stats(0, 16, 0, 0, 0, -1)).getPlayerPenalty(100));
+
+        model = model.setPlayerDensityWeight(8);
+        Assertions.assertEquals(0.25, score(model, TestLavalink.stats(0, 32, 0, 0, 0, -1)).getPlayerWeight());
+    }
+
+    @Test
+    void memoryTest() {
+        MultiFactorScoringModel model = ScoringModel.multiFactor();
+        PenaltySnapshot low = score(model, TestLavalink.stats(0, 4, 0, 0, 100 * MB, -1));
+        PenaltySnapshot high = score(model, TestLavalink.stats(0, 4, 0, 0, 950 * MB, -1));
+        Assertions.assertTrue(high.getMemoryPenalty() > 10 * low.getMemoryPenalty(), low + " " + high);
+        Assertions.assertEquals(high.getCpuPenalty() + high.getMemoryPenalty(), high.getTotal());
+
+        model = model.setMemoryWeight(0);
+        Assertions.assertEquals(0, score(model, TestLavalink.stats(0, 4, 0, 0, 950 * MB, -1)).getMemoryPenalty());
+    }
+
+    @Test
+    void foreignLoadTest() {
+        MultiFactorScoringModel model = ScoringModel.multiFactor();
+        // Both nodes are at 50% system load, but the load on the second is not caused by Lavalink
+        PenaltySnapshot own = score(model, TestLavalink.stats(0, 4, 0.5, 0.5, 0, -1));
+        PenaltySnapshot foreign = score(model, TestLavalink.stats(0, 4, 0.5, 0, 0, -1));
+        Assertions.assertTrue(foreign.getCpuPenalty() > own.getCpuPenalty(), own + " " + foreign);
+
+        model = model.setForeignLoadWeight(1);
+        Assertions.assertEquals(own.getCpuPenalty(), score(model, TestLavalink.stats(0, 4, 0.5, 0, 0, -1)).getCpuPenalty());
+    }
+
+    @Test
+    void loadBalancerTest() {
+        TestLavalink lavalink = new TestLavalink();
+        lavalink.loadBalancer.setScoringModel(ScoringModel.multiFactor());
+        TestLavalink.TestNode small = lavalink.createNode("small").setAvailable(true);
+        TestLavalink.TestNode large = lavalink.createNode("large").setAvailable(true);
+        small.setStats(TestLavalink.stats(0, 4, 0.1, 0.1, 100 * MB, -1), 0);
+        large.setStats(TestLavalink.stats(0, 32, 0.1, 0.1, 900 * MB, -1), 0);
+
+        // Same CPU load, but the large node is close to running out of memory
+        Assertions.assertTrue(lavalink.loadBalancer.getPenalties(large, 1, Collections.emptyList()).getTotal()
+                > lavalink.loadBalancer.getPenalties(small, 1, Collections.emptyList()).getTotal());
+    }
+}
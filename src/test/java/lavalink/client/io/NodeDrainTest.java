@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+class NodeDrainTest {
+
+    @Test
+    void drainTest() {
+        TestLavalink lavalink = new TestLavalink();
+        LavalinkSocket a = addNode(lavalink, "a");
+        LavalinkSocket b = addNode(lavalink, "b");
+        addLinks(lavalink, a, 15);
+        lavalink.loadBalancer.setRebalanceBatchSize(10);
+
+        CompletableFuture<Void> future = a.drain();
+        Assertions.assertTrue(a.isDraining());
+        Assertions.assertSame(future, a.drain());
+        Assertions.assertEquals(0, a.getDrainProgress());
+
+        // Moved in batches
+        lavalink.loadBalancer.drainNodes();
+        Assertions.assertEquals(5, a.getAssignedPlayers());
+        Assertions.assertEquals(10, b.getAssignedPlayers());
+        Assertions.assertEquals(10d / 15, a.getDrainProgress(), 0.0001);
+        Assertions.assertFalse(future.isDone());
+
+        lavalink.loadBalancer.drainNodes();
+        Assertions.assertEquals(0, a.getAssignedPlayers());
+        Assertions.assertTrue(future.isDone());
+        Assertions.assertEquals(15, lavalink.loadBalancer.getDrainedLinks());
+    }
+
+    @Test
+    void noNewLinksTest() {
+        TestLavalink lavalink = new TestLavalink();
+        LavalinkSocket a = addNode(lavalink, "a");
+        addNode(lavalink, "b");
+        a.drain();
+
+        for (NodeSelectionStrategy strategy : new NodeSelectionStrategy[]{NodeSelectionStrategy.leastPenalty(),
+                NodeSelectionStrategy.powerOfTwoChoices(), NodeSelectionStrategy.weightedRandom(),
+                NodeSelectionStrategy.consistentHash()}) {
+            lavalink.loadBalancer.setSelectionStrategy(strategy);
+            for (long guild = 0; guild < 100; guild++) {
+                Assertions.assertNotSame(a, lavalink.loadBalancer.determineBestSocket(guild));
+            }
+        }
+
+        a.stopDraining();
+        Assertions.assertFalse(a.isDraining());
+    }
+
+    @Test
+    void emptyTest() {
+        TestLavalink lavalink = new TestLavalink();
+        LavalinkSocket a = addNode(lavalink, "a");
+        Assertions.assertTrue(a.drain().isDone());
+    }
+
+    @Test
+    void stopTest() {
+        TestLavalink lavalink = new TestLavalink();
+        LavalinkSocket a = addNode(lavalink, "a");
+        addLinks(lavalink, a, 1);
+
+        CompletableFuture<Void> future = a.drain();
+        a.stopDraining();
+        Assertions.assertTrue(future.isCancelled());
+        Assertions.assertNotSame(future, a.drain());
+    }
+
+    @Test
+    void trackEndTest() {
+        TestLavalink lavalink = new TestLavalink();
+        LavalinkSocket a = addNode(lavalink, "a");
+        LavalinkSocket b = addNode(lavalink, "b");
+        addLinks(lavalink, a, 1);
+        Link link = lavalink.getLink("1");
+
+        CompletableFuture<Void> future = a.drain();
+        link.onTrackEnd();
+
+        Assertions.assertSame(b, link.getNode(false));
+        Assertions.assertTrue(future.isDone());
+        Assertions.assertEquals(1, lavalink.loadBalancer.getDrainedLinks());
+    }
+
+    private static LavalinkSocket addNode(TestLavalink lavalink, String name) {
+        LavalinkSocket node = lavalink.createNode(name).setAvailable(true).setStats(0);
+        lavalink.nodes.add(node);
+        return node;
+    }
+
+    private static void addLinks(TestLavalink lavalink, LavalinkSocket node, int count) {
+        for (int i = 1; i <= count; i++) {
+            Link link = lavalink.getLink(Integer.toString(i));
+            link.changeNode(node);
+            link.setState(Link.State.CONNECTED);
+        }
+    }
+}
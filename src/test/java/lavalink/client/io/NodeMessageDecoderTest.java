@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class NodeMessageDecoderTest {
+
+    private final NodeMessageDecoder decoder = new NodeMessageDecoder();
+
+    @Test
+    void playerUpdateTest() {
+        Assertions.assertTrue(decoder.decode("{\"op\":\"playerUpdate\",\"guildId\":\"174820236481134592\"," +
+                "\"state\":{\"time\":1500467109,\"position\":60000,\"connected\":false}}"));
+
+        Assertions.assertEquals(NodeMessageDecoder.Op.PLAYER_UPDATE, decoder.getOp());
+        Assertions.assertTrue(decoder.hasPlayerState());
+        Assertions.assertEquals(174820236481134592L, decoder.getGuildId());
+        Assertions.assertEquals(1500467109L, decoder.getStateTime());
+        Assertions.assertEquals(60000L, decoder.getStatePosition());
+        Assertions.assertFalse(decoder.isStateConnected());
+    }
+
+    @Test
+    void fieldOrderAndDefaultsTest() {
+        Assertions.assertTrue(decoder.decode(" { \"state\" : { \"extra\" : [1, {\"a\": \"}\"}], \"time\" : 42 } ,\n" +
+                " \"guildId\" : \"1\", \"op\" : \"playerUpdate\" } "));
+
+        Assertions.assertEquals(NodeMessageDecoder.Op.PLAYER_UPDATE, decoder.getOp());
+        Assertions.assertTrue(decoder.hasPlayerState());
+        Assertions.assertEquals(1L, decoder.getGuildId());
+        Assertions.assertEquals(42L, decoder.getStateTime());
+        Assertions.assertEquals(0L, decoder.getStatePosition());
+        Assertions.assertTrue(decoder.isStateConnected());
+    }
+
+    @Test
+    void otherOpsTest() {
+        Assertions.assertTrue(decoder.decode("{\"playingPlayers\":0,\"op\":\"stats\",\"memory\":{\"free\":1.5e3}," +
+                "\"cpu\":{\"systemLoad\":0.25},\"uptime\":15754}"));
+        Assertions.assertEquals(NodeMessageDecoder.Op.STATS, decoder.getOp());
+        Assertions.assertFalse(decoder.hasPlayerState());
+
+        Assertions.assertTrue(decoder.decode("{\"op\":\"event\",\"type\":\"TrackEndEvent\",\"guildId\":\"5\"," +
+                "\"track\":\"QAAAjQIAJF\\\"quoted\\\"\",\"reason\":\"FINISHED\"}"));
+        Assertions.assertEquals(NodeMessageDecoder.Op.EVENT, decoder.getOp());
+        Assertions.assertEquals(5L, decoder.getGuildId());
+
+        Assertions.assertTrue(decoder.decode("{\"op\":\"somethingNew\"}"));
+        Assertions.assertEquals(NodeMessageDecoder.Op.UNKNOWN, decoder.getOp());
+    }
+
+    @Test
+    void fallbackTest() {
+        // Truncated
+        Assertions.assertFalse(decoder.decode("{\"op\":\"playerUpdate\",\"guildId\":\"1\",\"state\":{\"time\":"));
+        // Not a snowflake
+        Assertions.assertFalse(decoder.decode("{\"op\":\"playerUpdate\",\"guildId\":\"abc\",\"state\":{\"time\":1}}"));
+        // Fractional time
+        Assertions.assertFalse(decoder.decode("{\"op\":\"playerUpdate\",\"guildId\":\"1\",\"state\":{\"time\":1.5}}"));
+        // Trailing garbage
+        Assertions.assertFalse(decoder.decode("{\"op\":\"stats\"} x"));
+        Assertions.assertFalse(decoder.decode("[]"));
+
+        // Missing time is left to the full parser
+        Assertions.assertTrue(decoder.decode("{\"op\":\"playerUpdate\",\"guildId\":\"1\",\"state\":{}}"));
+        Assertions.assertFalse(decoder.hasPlayerState());
+    }
+
+}
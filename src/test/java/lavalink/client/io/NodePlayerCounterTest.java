@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import com.sedmelluq.discord.lavaplayer.source.youtube.YoutubeAudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.source.youtube.YoutubeAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackEndReason;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import lavalink.client.player.LavalinkPlayer;
+import lavalink.client.player.event.TrackEndEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class NodePlayerCounterTest {
+
+    private TestLavalink lavalink;
+
+    @BeforeEach
+    void setUp() {
+        lavalink = new TestLavalink();
+    }
+
+    @AfterEach
+    void tearDown() {
+        lavalink.shutdown();
+    }
+
+    private static AudioTrack track() {
+        AudioTrackInfo info = new AudioTrackInfo("Jingle", "Lavalink", 60000, "aGOFOP2BIhI", false,
+                "https://www.youtube.com/watch?v=aGOFOP2BIhI");
+        return new YoutubeAudioTrack(info, new YoutubeAudioSourceManager());
+    }
+
+    @Test
+    void nodeChangeTest() {
+        LavalinkSocket a = lavalink.createNode("a");
+        LavalinkSocket b = lavalink.createNode("b");
+        Link link = lavalink.getLink("1");
+
+        link.changeNode(a);
+        Assertions.assertEquals(1, a.getAssignedPlayers());
+        Assertions.assertEquals(0, a.getPlayingPlayers());
+
+        link.changeNode(b);
+        Assertions.assertEquals(0, a.getAssignedPlayers());
+        Assertions.assertEquals(1, b.getAssignedPlayers());
+
+        link.changeNode(b);
+        Assertions.assertEquals(1, b.getAssignedPlayers());
+
+        link.destroy();
+        Assertions.assertEquals(0, b.getAssignedPlayers());
+        Assertions.assertEquals(0, b.getPlayingPlayers());
+    }
+
+    @Test
+    void pauseTest() {
+        LavalinkSocket a = lavalink.createNode("a");
+        Link link = lavalink.getLink("1");
+        link.changeNode(a);
+
+        // Pausing without a track does not make it count as playing
+        link.getPlayer().setPaused(true);
+        link.getPlayer().setPaused(false);
+        Assertions.assertEquals(1, a.getAssignedPlayers());
+        Assertions.assertEquals(0, a.getPlayingPlayers());
+    }
+
+    @Test
+    void playingTest() {
+        LavalinkSocket a = lavalink.createNode("a");
+        Link link = lavalink.getLink("1");
+        link.changeNode(a);
+        LavalinkPlayer player = link.getPlayer();
+
+        player.playTrack(track());
+        Assertions.assertEquals(1, a.getPlayingPlayers());
+
+        player.setPaused(true);
+        Assertions.assertEquals(0, a.getPlayingPlayers());
+        Assertions.assertEquals(1, a.getAssignedPlayers());
+
+        player.setPaused(false);
+        Assertions.assertEquals(1, a.getPlayingPlayers());
+
+        // Replacing the track keeps it playing
+        player.playTrack(track());
+        Assertions.assertEquals(1, a.getPlayingPlayers());
+
+        player.stopTrack();
+        Assertions.assertEquals(0, a.getPlayingPlayers());
+        Assertions.assertEquals(1, a.getAssignedPlayers());
+
+        // A track that ends by itself
+        AudioTrack track = track();
+        player.playTrack(track);
+        Assertions.assertEquals(1, a.getPlayingPlayers());
+        player.emitEvent(new TrackEndEvent(player, track, AudioTrackEndReason.FINISHED));
+        Assertions.assertEquals(0, a.getPlayingPlayers());
+    }
+
+    @Test
+    void playingNodeChangeTest() {
+        LavalinkSocket a = lavalink.createNode("a");
+        LavalinkSocket b = lavalink.createNode("b");
+        Link link = lavalink.getLink("1");
+        link.changeNode(a);
+        LavalinkPlayer player = link.getPlayer();
+
+        // Paused players move without counting as playing anywhere
+        player.playTrack(track());
+        player.setPaused(true);
+        link.changeNode(b);
+        Assertions.assertEquals(0, a.getAssignedPlayers());
+        Assertions.assertEquals(0, b.getPlayingPlayers());
+
+        player.setPaused(false);
+        Assertions.assertEquals(1, b.getPlayingPlayers());
+
+        // A playing player takes its count along
+        link.changeNode(a);
+        Assertions.assertEquals(0, b.getPlayingPlayers());
+        Assertions.assertEquals(0, b.getAssignedPlayers());
+        Assertions.assertEquals(1, a.getPlayingPlayers());
+
+        link.destroy();
+        Assertions.assertEquals(0, a.getPlayingPlayers());
+        Assertions.assertEquals(0, a.getAssignedPlayers());
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import lavalink.client.RequireSystemProperty;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+class NodeSelectionStrategyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(NodeSelectionStrategyTest.class);
+    private static final int GUILDS = 10000;
+    /** Penalties only change with stats messages, so during a burst of new guilds all nodes look the same */
+    private static final ToIntFunction<LavalinkSocket> STALE_PENALTY = node -> 100;
+
+    private static List<LavalinkSocket> nodes(TestLavalink lavalink, int count) {
+        List<LavalinkSocket> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nodes.add(lavalink.createNode("node-" + i).setAvailable(true));
+        }
+        return nodes;
+    }
+
+    /**
+     * @return the share of the guilds that the busiest node got
+     */
+    private static double herding(String name, NodeSelectionStrategy strategy, List<LavalinkSocket> nodes) {
+        Map<LavalinkSocket, Integer> counts = new HashMap<>();
+        for (long guild = 0; guild < GUILDS; guild++) {
+            counts.merge(strategy.select(guild, nodes, STALE_PENALTY), 1, Integer::sum);
+        }
+
+        double mean = (double) GUILDS / nodes.size();
+        double variance = 0;
+        int max = 0;
+        for (LavalinkSocket node : nodes) {
+            int count = counts.getOrDefault(node, 0);
+            variance += (count - mean) * (count - mean) / nodes.size();
+            max = Math.max(max, count);
+        }
+        double maxShare = (double) max / GUILDS;
+        log.info("{}: busiest node got {}% of new guilds, coefficient of variation {}",
+                name, Math.round(maxShare * 1000) / 10d, Math.round(Math.sqrt(variance) / mean * 1000) / 1000d);
+        return maxShare;
+    }
+
+    @Test
+    void herdingTest() {
+        List<LavalinkSocket> nodes = nodes(new TestLavalink(), 10);
+
+        Assertions.assertEquals(1, herding("leastPenalty", NodeSelectionStrategy.leastPenalty(), nodes));
+        Assertions.assertTrue(herding("powerOfTwoChoices", NodeSelectionStrategy.powerOfTwoChoices(), nodes) < 0.15);
+        Assertions.assertTrue(herding("weightedRandom", NodeSelectionStrategy.weightedRandom(), nodes) < 0.15);
+        Assertions.assertTrue(herding("consistentHash", NodeSelectionStrategy.consistentHash(), nodes) < 0.15);
+    }
+
+    @Test
+    void penaltyTest() {
+        List<LavalinkSocket> nodes = nodes(new TestLavalink(), 3);
+        ToIntFunction<LavalinkSocket> penalty = node -> node == nodes.get(0) ? 0 : 10000;
+
+        int first = 0;
+        for (long guild = 0; guild < 1000; guild++) {
+            if (NodeSelectionStrategy.powerOfTwoChoices().select(guild, nodes, penalty) == nodes.get(0)) first++;
+        }
+        // The unloaded node is in two out of three random pairs
+        Assertions.assertTrue(first > 600, "Got " + first);
+
+        first = 0;
+        for (long guild = 0; guild < 1000; guild++) {
+            if (NodeSelectionStrategy.weightedRandom().select(guild, nodes, penalty) == nodes.get(0)) first++;
+        }
+        Assertions.assertTrue(first > 990, "Got " + first);
+    }
+
+    @Test
+    void unavailableTest() {
+        List<LavalinkSocket> nodes = nodes(new TestLavalink(), 4);
+        ((TestLavalink.TestNode) nodes.get(1)).setAvailable(false);
+        ToIntFunction<LavalinkSocket> penalty = node -> node.isAvailable() ? 0 : PenaltySnapshot.UNAVAILABLE;
+
+        for (NodeSelectionStrategy strategy : new NodeSelectionStrategy[]{
+                NodeSelectionStrategy.leastPenalty(),
+                NodeSelectionStrategy.powerOfTwoChoices(),
+                NodeSelectionStrategy.weightedRandom(),
+                NodeSelectionStrategy.consistentHash()}) {
+            for (long guild = 0; guild < 1000; guild++) {
+                Assertions.assertNotSame(nodes.get(1), strategy.select(guild, nodes, penalty));
+            }
+            Assertions.assertNull(strategy.select(1, nodes, node -> PenaltySnapshot.UNAVAILABLE));
+        }
+    }
+
+    @Test
+    void consistentHashTest() {
+        TestLavalink lavalink = new TestLavalink();
+        List<LavalinkSocket> nodes = nodes(lavalink, 10);
+        NodeSelectionStrategy strategy = NodeSelectionStrategy.consistentHash();
+
+        LavalinkSocket[] before = new LavalinkSocket[GUILDS];
+        for (int guild = 0; guild < GUILDS; guild++) {
+            before[guild] = strategy.select(guild, nodes, STALE_PENALTY);
+            Assertions.assertSame(before[guild], strategy.select(guild, nodes, STALE_PENALTY));
+        }
+
+        // Only the guilds of a removed node move
+        List<LavalinkSocket> removed = new ArrayList<>(nodes);
+        LavalinkSocket gone = removed.remove(3);
+        for (int guild = 0; guild < GUILDS; guild++) {
+            LavalinkSocket after = strategy.select(guild, removed, STALE_PENALTY);
+            if (before[guild] != gone) Assertions.assertSame(before[guild], after);
+        }
+
+        // Only guilds that go to an added node move
+        List<LavalinkSocket> added = new ArrayList<>(nodes);
+        LavalinkSocket extra = lavalink.createNode("node-extra").setAvailable(true);
+        added.add(extra);
+        int moved = 0;
+        for (int guild = 0; guild < GUILDS; guild++) {
+            LavalinkSocket after = strategy.select(guild, added, STALE_PENALTY);
+            if (after != before[guild]) {
+                Assertions.assertSame(extra, after);
+                moved++;
+            }
+        }
+        log.info("Adding an 11th node moved {}% of guilds", moved * 100d / GUILDS);
+        Assertions.assertTrue(moved < GUILDS * 0.15, "Moved " + moved);
+    }
+
+    @Test
+    @RequireSystemProperty("benchmark")
+    void benchmark() {
+        List<LavalinkSocket> nodes = nodes(new TestLavalink(), 12);
+        Map<String, NodeSelectionStrategy> strategies = new HashMap<>();
+        strategies.put("leastPenalty", NodeSelectionStrategy.leastPenalty());
+        strategies.put("powerOfTwoChoices", NodeSelectionStrategy.powerOfTwoChoices());
+        strategies.put("weightedRandom", NodeSelectionStrategy.weightedRandom());
+        strategies.put("consistentHash", NodeSelectionStrategy.consistentHash());
+
+        int iterations = 5_000_000;
+        strategies.forEach((name, strategy) -> {
+            // Warm up, then measure
+            long sink = 0;
+            for (int round = 0; round < 2; round++) {
+                long start = System.nanoTime();
+                for (int guild = 0; guild < iterations; guild++) {
+                    sink += strategy.select(guild, nodes, STALE_PENALTY).hashCode();
+                }
+                long elapsed = System.nanoTime() - start;
+                if (round == 1) {
+                    log.info("{}: {} ns per selection over 12 nodes ({} ms total, {})", name,
+                            (double) elapsed / iterations, TimeUnit.NANOSECONDS.toMillis(elapsed), sink);
+                }
+            }
+            herding(name, strategy, nodes);
+        });
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+class OutboundQueueTest {
+
+    @Test
+    void collapseTest() {
+        OutboundQueue queue = new OutboundQueue(100);
+        queue.offer(1, OutboundOp.VOICE_UPDATE, "voice1");
+        queue.offer(1, OutboundOp.PAUSE, "pause1");
+        queue.offer(1, OutboundOp.SEEK, "seek1");
+        queue.offer(2, OutboundOp.VOLUME, "volume2");
+        queue.offer(1, OutboundOp.FILTERS, "filters1");
+        queue.offer(1, OutboundOp.PLAY, "play1");
+        queue.offer(1, OutboundOp.SEEK, "seek1b");
+        queue.offer(2, OutboundOp.VOLUME, "volume2b");
+        queue.offer(0, OutboundOp.OTHER, "other");
+        queue.offer(0, OutboundOp.OTHER, "other");
+
+        Assertions.assertEquals("[voice1, filters1, play1, seek1b, volume2b, other, other]", messages(queue.drain()));
+        Assertions.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void destroyTest() {
+        OutboundQueue queue = new OutboundQueue(100);
+        queue.offer(1, OutboundOp.VOICE_UPDATE, "voice1");
+        queue.offer(1, OutboundOp.PLAY, "play1");
+        queue.offer(2, OutboundOp.PLAY, "play2");
+        queue.offer(1, OutboundOp.DESTROY, "destroy1");
+        queue.offer(1, OutboundOp.VOICE_UPDATE, "voice1b");
+        queue.offer(1, OutboundOp.STOP, "stop1");
+
+        Assertions.assertEquals("[play2, destroy1, voice1b, stop1]", messages(queue.drain()));
+    }
+
+    @Test
+    void capacityTest() {
+        OutboundQueue queue = new OutboundQueue(2);
+        Assertions.assertTrue(queue.offer(1, OutboundOp.PLAY, "play1"));
+        Assertions.assertTrue(queue.offer(2, OutboundOp.PLAY, "play2"));
+        Assertions.assertFalse(queue.offer(3, OutboundOp.PLAY, "play3"));
+        // Replacing an op doesn't need extra room
+        Assertions.assertTrue(queue.offer(1, OutboundOp.STOP, "stop1"));
+
+        Assertions.assertEquals(1, queue.getDropped());
+        Assertions.assertEquals("[play2, stop1]", messages(queue.drain()));
+    }
+
+    @Test
+    void drainGuildTest() {
+        OutboundQueue queue = new OutboundQueue(100);
+        queue.offer(1, OutboundOp.VOLUME, "volume1");
+        queue.offer(2, OutboundOp.SEEK, "seek2");
+        queue.offer(1, OutboundOp.SEEK, "seek1");
+        queue.offer(1, OutboundOp.FILTERS, "filters1");
+        queue.offer(1, OutboundOp.FILTERS, "filters1b");
+
+        // A stop makes the pending seek pointless, but the other ops must still go out before it
+        Assertions.assertEquals("[volume1, filters1b]", messages(queue.drain(1, OutboundOp.STOP)));
+        Assertions.assertEquals(2, queue.getSuperseded());
+        Assertions.assertEquals("[seek2]", messages(queue.drain()));
+    }
+
+    @Test
+    void removeGuildTest() {
+        OutboundQueue queue = new OutboundQueue(100);
+        queue.offer(1, OutboundOp.PLAY, "play1");
+        queue.offer(0, OutboundOp.OTHER, "other");
+        queue.offer(2, OutboundOp.SEEK, "seek2");
+        queue.offer(1, OutboundOp.SEEK, "seek1");
+
+        Assertions.assertEquals(2, queue.removeGuild(1));
+        Assertions.assertEquals(0, queue.removeGuild(1));
+        Assertions.assertEquals("[other, seek2]", messages(queue.drain()));
+    }
+
+    private static String messages(List<OutboundQueue.Entry> entries) {
+        return entries.stream().map(entry -> entry.message).collect(Collectors.toList()).toString();
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PenaltySnapshotTest {
+
+    private static RemoteStats stats(double systemLoad, String frameStats) {
+        return new RemoteStats(new JSONObject("{\"playingPlayers\":3,\"op\":\"stats\",\"memory\":{\"reservable\":1892155392,\"used\":67111552,\"free\":137885056,\"allocated\":204996608},\"players\":5,\"cpu\":{\"cores\":4,\"systemLoad\":" + systemLoad + ",\"lavalinkLoad\":0}," + frameStats + "\"uptime\":15754}"));
+    }
+
+    @Test
+    void cpuPenaltyTest() {
+        PenaltySnapshot snapshot = new PenaltySnapshot(stats(0.5, ""), true);
+        // (int) 1.05^50 = 11
+        Assertions.assertEquals(100, snapshot.getCpuPenalty());
+        Assertions.assertEquals(0, snapshot.getDeficitFramePenalty());
+        Assertions.assertEquals(0, snapshot.getNullFramePenalty());
+        Assertions.assertEquals(100, snapshot.getTotal());
+    }
+
+    @Test
+    void framePenaltyTest() {
+        PenaltySnapshot snapshot = new PenaltySnapshot(stats(0, "\"frameStats\":{\"sent\":3000,\"nulled\":0,\"deficit\":0},"), true);
+        Assertions.assertEquals(0, snapshot.getTotal());
+
+        snapshot = new PenaltySnapshot(stats(0, "\"frameStats\":{\"sent\":3000,\"nulled\":300,\"deficit\":300},"), true);
+        // (int) (1.03^50 * 600 - 600) = 2030, and twice (int) (1.03^50 * 300 - 300)
+        Assertions.assertEquals(2030, snapshot.getDeficitFramePenalty());
+        Assertions.assertEquals(2030, snapshot.getNullFramePenalty());
+        Assertions.assertEquals(4060, snapshot.getTotal());
+    }
+
+    @Test
+    void unavailableTest() {
+        Assertions.assertEquals(PenaltySnapshot.UNAVAILABLE, new PenaltySnapshot(stats(0, ""), false).getTotal());
+        Assertions.assertEquals(PenaltySnapshot.UNAVAILABLE, new PenaltySnapshot(null, true).getTotal());
+        Assertions.assertEquals(PenaltySnapshot.UNAVAILABLE, PenaltySnapshot.EMPTY.getTotal());
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+class RebalancerTest {
+
+    @Test
+    void newNodeTest() {
+        TestLavalink lavalink = newLavalink();
+        LavalinkSocket a = addNode(lavalink, "a");
+        LavalinkSocket b = addNode(lavalink, "b");
+        addLinks(lavalink, a, 0, 6);
+        addLinks(lavalink, b, 6, 6);
+
+        // Joins after the other nodes have taken all links
+        LavalinkSocket c = addNode(lavalink, "c");
+        lavalink.loadBalancer.rebalance();
+
+        Assertions.assertEquals(4, a.getAssignedPlayers());
+        Assertions.assertEquals(4, b.getAssignedPlayers());
+        Assertions.assertEquals(4, c.getAssignedPlayers());
+        Assertions.assertEquals(4, lavalink.loadBalancer.getRebalancedIdleLinks());
+
+        // Balanced, so nothing more to do
+        lavalink.loadBalancer.rebalance();
+        Assertions.assertEquals(4, lavalink.loadBalancer.getRebalancedIdleLinks());
+    }
+
+    @Test
+    void batchSizeTest() {
+        TestLavalink lavalink = newLavalink();
+        LavalinkSocket a = addNode(lavalink, "a");
+        addLinks(lavalink, a, 0, 10);
+        LavalinkSocket b = addNode(lavalink, "b");
+        lavalink.loadBalancer.setRebalanceBatchSize(2);
+
+        lavalink.loadBalancer.rebalance();
+        Assertions.assertEquals(2, b.getAssignedPlayers());
+        lavalink.loadBalancer.rebalance();
+        Assertions.assertEquals(4, b.getAssignedPlayers());
+    }
+
+    @Test
+    void emptyNodeTest() {
+        TestLavalink lavalink = newLavalink();
+        lavalink.loadBalancer.setRebalanceBatchSize(100);
+        for (int i = 0; i < 9; i++) {
+            addLinks(lavalink, addNode(lavalink, "node-" + i), i * 10, 10);
+        }
+        // With 10 nodes, none of the others is 20% above the average of 9
+        LavalinkSocket recovered = addNode(lavalink, "recovered");
+
+        lavalink.loadBalancer.rebalance();
+        Assertions.assertEquals(9, recovered.getAssignedPlayers());
+    }
+
+    @Test
+    void thresholdTest() {
+        TestLavalink lavalink = newLavalink();
+        LavalinkSocket a = addNode(lavalink, "a");
+        LavalinkSocket b = addNode(lavalink, "b");
+        addLinks(lavalink, a, 0, 6);
+        addLinks(lavalink, b, 6, 4);
+        // 6 is exactly 20% above the average of 5
+        lavalink.loadBalancer.rebalance();
+        Assertions.assertEquals(6, a.getAssignedPlayers());
+
+        lavalink.loadBalancer.setRebalanceThreshold(0.1);
+        lavalink.loadBalancer.rebalance();
+        Assertions.assertEquals(5, a.getAssignedPlayers());
+        Assertions.assertEquals(5, b.getAssignedPlayers());
+    }
+
+    @Test
+    void trackEndTest() {
+        TestLavalink lavalink = newLavalink();
+        LavalinkSocket a = addNode(lavalink, "a");
+        LavalinkSocket b = addNode(lavalink, "b");
+        Link link = lavalink.getLink("1");
+        link.changeNode(a);
+        link.setState(Link.State.CONNECTED);
+
+        link.setPendingMove(b);
+        Assertions.assertSame(a, link.getNode(false));
+        link.onTrackEnd();
+
+        Assertions.assertSame(b, link.getNode(false));
+        Assertions.assertNull(link.getPendingMove());
+        Assertions.assertEquals(0, a.getAssignedPlayers());
+        Assertions.assertEquals(1, b.getAssignedPlayers());
+        Assertions.assertEquals(1, lavalink.loadBalancer.getRebalancedPlayingLinks());
+    }
+
+    @Test
+    void disabledTest() {
+        TestLavalink lavalink = newLavalink();
+        LavalinkSocket a = addNode(lavalink, "a");
+        addLinks(lavalink, a, 0, 4);
+        addNode(lavalink, "b");
+        lavalink.loadBalancer.setRebalancing(false);
+
+        lavalink.loadBalancer.rebalance();
+        Assertions.assertEquals(4, a.getAssignedPlayers());
+    }
+
+    @Test
+    void defaultTest() {
+        TestLavalink lavalink = new TestLavalink();
+        Assertions.assertFalse(lavalink.loadBalancer.isRebalancing());
+        LavalinkSocket a = addNode(lavalink, "a");
+        addLinks(lavalink, a, 0, 4);
+        addNode(lavalink, "b");
+
+        // Opt-in, so nothing moves on its own
+        lavalink.loadBalancer.rebalance();
+        Assertions.assertEquals(4, a.getAssignedPlayers());
+        lavalink.shutdown();
+    }
+
+    private static TestLavalink newLavalink() {
+        TestLavalink lavalink = new TestLavalink();
+        lavalink.loadBalancer.setRebalancing(true);
+        return lavalink;
+    }
+
+    @Test
+    void filtersTest() {
+        TestLavalink lavalink = newLavalink();
+        LavalinkSocket a = addNode(lavalink, "a");
+        Link link = lavalink.getLink("1");
+        link.changeNode(a);
+        link.onVoiceServerUpdate(new JSONObject().put("token", "abc"), "session");
+        link.getPlayer().getFilters().setBand(0, 0.2f).commit();
+
+        // The new node gets our filters along with the voice state
+        TestLavalink.TestNode b = addNode(lavalink, "b").record();
+        link.moveNode(b);
+        Assertions.assertEquals(Arrays.asList(OutboundOp.VOICE_UPDATE, OutboundOp.FILTERS), b.getSentOps());
+
+        // Also when moving at the end of a track, for the next one
+        TestLavalink.TestNode c = addNode(lavalink, "c").record();
+        link.setPendingMove(c);
+        link.onTrackEnd();
+        Assertions.assertSame(c, link.getNode(false));
+        Assertions.assertEquals(Arrays.asList(OutboundOp.VOICE_UPDATE, OutboundOp.FILTERS), c.getSentOps());
+        lavalink.shutdown();
+    }
+
+    private static TestLavalink.TestNode addNode(TestLavalink lavalink, String name) {
+        TestLavalink.TestNode node = lavalink.createNode(name).setAvailable(true);
+        lavalink.nodes.add(node);
+        return node;
+    }
+
+    private static void addLinks(TestLavalink lavalink, LavalinkSocket node, int first, int count) {
+        for (int i = first + 1; i <= first + count; i++) {
+            Link link = lavalink.getLink(Integer.toString(i));
+            link.changeNode(node);
+            link.setState(Link.State.CONNECTED);
+        }
+    }
+}
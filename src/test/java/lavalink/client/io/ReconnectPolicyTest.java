@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ReconnectPolicyTest {
+
+    private static final int SAMPLES = 1000;
+
+    @Test
+    void boundsTest() {
+        ReconnectPolicy policy = ReconnectPolicy.exponentialBackoff(1000, 60000);
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            long bound = Math.min(60000, 1000L << (attempt - 1));
+            long highest = 0;
+            for (int i = 0; i < SAMPLES; i++) {
+                long delay = policy.getDelay(attempt);
+                Assertions.assertTrue(delay >= 0 && delay <= bound, "Attempt " + attempt + " waited " + delay);
+                highest = Math.max(highest, delay);
+            }
+            // Jitter that spreads over most of the range
+            Assertions.assertTrue(highest > bound / 2, "Attempt " + attempt + " never waited long");
+        }
+    }
+
+    @Test
+    void capTest() {
+        ReconnectPolicy policy = ReconnectPolicy.exponentialBackoff(1000, 60000);
+        for (int attempt : new int[]{20, 63, 64, 1000, Integer.MAX_VALUE}) {
+            for (int i = 0; i < SAMPLES; i++) {
+                long delay = policy.getDelay(attempt);
+                Assertions.assertTrue(delay >= 0 && delay <= 60000, "Attempt " + attempt + " waited " + delay);
+            }
+        }
+
+        // Without a cap to speak of
+        ReconnectPolicy uncapped = ReconnectPolicy.exponentialBackoff(1, Long.MAX_VALUE);
+        Assertions.assertTrue(uncapped.getDelay(Integer.MAX_VALUE) >= 0);
+        Assertions.assertTrue(uncapped.getDelay(1) <= 1);
+    }
+
+    @Test
+    void argumentsTest() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ReconnectPolicy.exponentialBackoff(0, 1000));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ReconnectPolicy.exponentialBackoff(1000, 999));
+    }
+
+    @Test
+    void singleAttemptTest() {
+        TestLavalink lavalink = new TestLavalink();
+        AtomicInteger scheduled = new AtomicInteger();
+        lavalink.setReconnectPolicy(attempt -> {
+            scheduled.incrementAndGet();
+            return TimeUnit.MINUTES.toMillis(10);
+        });
+        TestLavalink.TestNode node = lavalink.createNode("a");
+        lavalink.nodes.add(node);
+
+        // Losing the connection again before the attempt does not schedule another one
+        node.onClose(1006, "Connection lost", true);
+        node.onClose(1006, "Connection lost", true);
+        Assertions.assertEquals(1, scheduled.get());
+        lavalink.shutdown();
+    }
+}
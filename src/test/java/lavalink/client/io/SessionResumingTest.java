@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import com.sedmelluq.discord.lavaplayer.source.youtube.YoutubeAudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.source.youtube.YoutubeAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import lavalink.client.player.LavalinkPlayer;
+import org.java_websocket.handshake.HandshakeImpl1Server;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+class SessionResumingTest {
+
+    private TestLavalink lavalink;
+    private TestLavalink.TestNode a;
+    private TestLavalink.TestNode b;
+
+    @BeforeEach
+    void setUp() {
+        lavalink = new TestLavalink();
+        // Reconnects are left to the tests
+        lavalink.setReconnectPolicy(attempt -> TimeUnit.MINUTES.toMillis(10));
+        a = node("a");
+        b = node("b");
+        a.setResuming("key", 60);
+    }
+
+    @AfterEach
+    void tearDown() {
+        lavalink.shutdown();
+    }
+
+    private TestLavalink.TestNode node(String name) {
+        TestLavalink.TestNode node = lavalink.createNode(name).setAvailable(true);
+        lavalink.nodes.add(node);
+        return node;
+    }
+
+    private static void open(TestLavalink.TestNode node, boolean resumed) {
+        HandshakeImpl1Server handshake = new HandshakeImpl1Server();
+        if (resumed) handshake.put("Session-Resumed", "true");
+        node.setOpen(true).setAvailable(true);
+        node.onOpen(handshake);
+    }
+
+    private static void close(TestLavalink.TestNode node) {
+        node.setOpen(false).setAvailable(false);
+        node.onClose(1006, "Connection lost", true);
+    }
+
+    private Link connectedLink(String guild, LavalinkSocket node) {
+        Link link = lavalink.getLink(guild);
+        link.changeNode(node);
+        link.onVoiceServerUpdate(new JSONObject()
+                .put("token", "0123456789abcdef")
+                .put("guild_id", guild)
+                .put("endpoint", "rotterdam123.discord.media:443"), "session");
+        return link;
+    }
+
+    /**
+     * @return the ops written to the node since the last call, such as "voiceUpdate 1"
+     */
+    private static List<String> takeWritten(TestLavalink.TestNode node) {
+        List<String> ops = node.getWritten().stream().map(message -> {
+            JSONObject json = new JSONObject(message);
+            return json.has("guildId") ? json.getString("op") + " " + json.getString("guildId") : json.getString("op");
+        }).collect(Collectors.toList());
+        node.getWritten().clear();
+        return ops;
+    }
+
+    private static void awaitNode(Link link, LavalinkSocket node) throws InterruptedException {
+        // Links are moved on the scheduler
+        for (int i = 0; i < 100 && link.getNode(false) != node; i++) {
+            Thread.sleep(10);
+        }
+        Assertions.assertSame(node, link.getNode(false));
+    }
+
+    @Test
+    void handshakeTest() {
+        Assertions.assertEquals("key", a.getHeaders().get("Resume-Key"));
+
+        open(a, false);
+        List<String> written = a.getWritten();
+        Assertions.assertEquals(1, written.size());
+        JSONObject configure = new JSONObject(written.get(0));
+        Assertions.assertEquals("configureResuming", configure.getString("op"));
+        Assertions.assertEquals("key", configure.getString("key"));
+        Assertions.assertEquals(60, configure.getInt("timeout"));
+
+        a.setResuming(null, 0);
+        Assertions.assertFalse(a.getHeaders().containsKey("Resume-Key"));
+    }
+
+    @Test
+    void resumedTest() {
+        open(a, false);
+        Link link = connectedLink("1", a);
+        takeWritten(a);
+
+        close(a);
+        Assertions.assertTrue(a.isAwaitingResume());
+        Assertions.assertSame(a, link.getNode(false));
+        // Waiting for the session, not for the next connection
+        link.getPlayer().setPaused(true);
+
+        // The node still has the player, so only what was queued in the meantime is sent
+        open(a, true);
+        Assertions.assertFalse(a.isAwaitingResume());
+        Assertions.assertSame(a, link.getNode(false));
+        Assertions.assertEquals("[pause 1, configureResuming]", takeWritten(a).toString());
+    }
+
+    @Test
+    void timeoutTest() throws InterruptedException {
+        open(a, false);
+        Link link = connectedLink("1", a);
+        close(a);
+
+        a.expireResume();
+        Assertions.assertFalse(a.isAwaitingResume());
+        awaitNode(link, b);
+
+        // A failed reconnect does not start another wait, as there is nothing left to keep
+        close(a);
+        Assertions.assertFalse(a.isAwaitingResume());
+        a.expireResume();
+        takeWritten(a);
+
+        // The node kept our old player, which would play next to the one on the other node
+        open(a, true);
+        Assertions.assertEquals("[destroy 1, configureResuming]", takeWritten(a).toString());
+        Assertions.assertSame(b, link.getNode(false));
+    }
+
+    @Test
+    void resyncTest() {
+        open(a, false);
+        Link link = connectedLink("1", a);
+        LavalinkPlayer player = link.getPlayer();
+        player.playTrack(new YoutubeAudioTrack(new AudioTrackInfo("Jingle", "Lavalink", 60000, "aGOFOP2BIhI",
+                false, "https://www.youtube.com/watch?v=aGOFOP2BIhI"), new YoutubeAudioSourceManager()));
+        close(a);
+
+        // Queued while the connection is lost
+        player.seekTo(1000);
+        a.send(MessageEncoder.configureResuming("key", 60));
+        takeWritten(a);
+
+        // The node has forgotten about us, so the link is set up again. The queued seek is older than that.
+        open(a, false);
+        Assertions.assertFalse(a.isAwaitingResume());
+        Assertions.assertSame(a, link.getNode(false));
+        Assertions.assertEquals("[voiceUpdate 1, play 1, configureResuming, configureResuming]",
+                takeWritten(a).toString());
+    }
+}
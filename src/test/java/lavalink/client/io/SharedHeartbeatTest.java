@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SharedHeartbeatTest {
+
+    @Test
+    void lifecycleTest() {
+        TestLavalink lavalink = new TestLavalink();
+        TestLavalink.TestNode a = lavalink.createNode("a");
+        TestLavalink.TestNode b = lavalink.createNode("b");
+        lavalink.nodes.add(a);
+        lavalink.nodes.add(b);
+
+        SharedHeartbeat.register(a);
+        SharedHeartbeat.register(b);
+        Assertions.assertTrue(SharedHeartbeat.isRunning());
+        Assertions.assertEquals(2, SharedHeartbeat.getRegisteredCount());
+
+        SharedHeartbeat.unregister(a);
+        Assertions.assertTrue(SharedHeartbeat.isRunning());
+
+        // The last connection to go stops the thread, and the next one starts it again
+        SharedHeartbeat.unregister(b);
+        Assertions.assertFalse(SharedHeartbeat.isRunning());
+        SharedHeartbeat.register(a);
+        Assertions.assertTrue(SharedHeartbeat.isRunning());
+
+        lavalink.shutdown();
+        Assertions.assertFalse(SharedHeartbeat.isRunning());
+        Assertions.assertEquals(0, SharedHeartbeat.getRegisteredCount());
+    }
+}
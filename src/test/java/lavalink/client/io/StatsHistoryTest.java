@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+class StatsHistoryTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private static RemoteStats stats(double systemLoad, String frameStats) {
+        return new RemoteStats(new JSONObject("{\"playingPlayers\":3,\"op\":\"stats\",\"memory\":{\"reservable\":1892155392,\"used\":67111552,\"free\":137885056,\"allocated\":204996608},\"players\":5,\"cpu\":{\"cores\":4,\"systemLoad\":" + systemLoad + ",\"lavalinkLoad\":0}," + frameStats + "\"uptime\":15754}"));
+    }
+
+    private static StatsHistory history(double... systemLoads) {
+        StatsHistory history = new StatsHistory(16);
+        for (int i = 0; i < systemLoads.length; i++) {
+            history.record(stats(systemLoads[i], ""), i * MINUTE);
+        }
+        return history;
+    }
+
+    @Test
+    void averageTest() {
+        StatsHistory history = history(0.1, 0.2);
+        Assertions.assertEquals(0.13, history.getAverage(StatsHistory.Metric.SYSTEM_LOAD), 0.0001);
+        Assertions.assertEquals(0.2, history.getSample(StatsHistory.Metric.SYSTEM_LOAD, 0));
+        Assertions.assertEquals(0.1, history.getSample(StatsHistory.Metric.SYSTEM_LOAD, 1));
+        Assertions.assertEquals(-1, new StatsHistory(16).getAverage(StatsHistory.Metric.SYSTEM_LOAD));
+    }
+
+    @Test
+    void trendTest() {
+        Assertions.assertEquals(0.1, history(0.1, 0.2, 0.3, 0.4, 0.5).getTrend(StatsHistory.Metric.SYSTEM_LOAD), 0.0001);
+        Assertions.assertEquals(-0.05, history(0.5, 0.45, 0.4).getTrend(StatsHistory.Metric.SYSTEM_LOAD), 0.0001);
+        Assertions.assertEquals(0, history(0.5).getTrend(StatsHistory.Metric.SYSTEM_LOAD));
+    }
+
+    @Test
+    void ringTest() {
+        StatsHistory history = new StatsHistory(4);
+        for (int i = 0; i < 6; i++) {
+            history.record(stats(i / 10d, ""), i * MINUTE);
+        }
+        Assertions.assertEquals(4, history.getSize());
+        Assertions.assertEquals(0.5, history.getSample(StatsHistory.Metric.SYSTEM_LOAD, 0));
+        Assertions.assertEquals(0.2, history.getSample(StatsHistory.Metric.SYSTEM_LOAD, 3));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> history.getSample(StatsHistory.Metric.SYSTEM_LOAD, 4));
+        // Only the kept samples count towards the trend
+        Assertions.assertEquals(0.1, history.getTrend(StatsHistory.Metric.SYSTEM_LOAD), 0.0001);
+    }
+
+    @Test
+    void framesTest() {
+        StatsHistory history = new StatsHistory(16);
+        history.record(stats(0, ""), 0);
+        history.record(stats(0, "\"frameStats\":{\"sent\":3000,\"nulled\":10,\"deficit\":20},"), MINUTE);
+        history.record(stats(0, "\"frameStats\":{\"sent\":3000,\"nulled\":20,\"deficit\":40},"), 2 * MINUTE);
+
+        Assertions.assertEquals(-1, history.getSample(StatsHistory.Metric.FRAMES_DEFICIT, 2));
+        Assertions.assertEquals(26, history.getAverage(StatsHistory.Metric.FRAMES_DEFICIT), 0.0001);
+        Assertions.assertEquals(20, history.getTrend(StatsHistory.Metric.FRAMES_DEFICIT), 0.0001);
+        Assertions.assertEquals(10, history.getTrend(StatsHistory.Metric.FRAMES_NULLED), 0.0001);
+    }
+
+    @Test
+    void predictiveRisingTest() {
+        ScoringModel predictive = ScoringModel.predictive(2, TimeUnit.MINUTES);
+        StatsHistory steady = history(0.4, 0.4, 0.4, 0.4);
+        StatsHistory rising = history(0.1, 0.2, 0.3, 0.4);
+        RemoteStats latest = stats(0.4, "");
+
+        // Both look the same by their latest stats
+        Assertions.assertEquals(ScoringModel.latest().score(latest, steady, true).getTotal(),
+                ScoringModel.latest().score(latest, rising, true).getTotal());
+        Assertions.assertTrue(predictive.score(latest, rising, true).getCpuPenalty()
+                > predictive.score(latest, steady, true).getCpuPenalty());
+    }
+
+    @Test
+    void predictiveSpikeTest() {
+        StatsHistory history = history(0.2, 0.2, 0.2, 0.2, 0.9);
+        RemoteStats latest = stats(0.9, "");
+        Assertions.assertTrue(ScoringModel.predictive(1, TimeUnit.MINUTES).score(latest, history, true).getCpuPenalty()
+                < ScoringModel.latest().score(latest, history, true).getCpuPenalty());
+    }
+
+    @Test
+    void predictiveUnavailableTest() {
+        StatsHistory history = history(0.2);
+        Assertions.assertEquals(PenaltySnapshot.UNAVAILABLE,
+                ScoringModel.predictive(1, TimeUnit.MINUTES).score(stats(0.2, ""), history, false).getTotal());
+    }
+}
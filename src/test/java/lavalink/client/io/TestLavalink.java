@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.java_websocket.drafts.Draft_6455;
+import org.json.JSONObject;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A Lavalink with links that do nothing, and nodes that are never connected
+ */
+class TestLavalink extends Lavalink<Link> {
+
+    TestLavalink() {
+        super("1", 1);
+    }
+
+    /**
+     * Creates a node that is not registered with this instance, so that nothing is sent or queued for it
+     */
+    TestNode createNode(String name) {
+        return new TestNode(name, this, headers());
+    }
+
+    private static HashMap<String, String> headers() {
+        HashMap<String, String> headers = new HashMap<>();
+        headers.put("Authorization", "");
+        return headers;
+    }
+
+    /**
+     * A node that is never connected, but may pretend to be available and have stats, or to be open
+     */
+    static class TestNode extends LavalinkSocket {
+
+        private final Map<String, String> headers;
+        private volatile boolean available = false;
+        private volatile boolean open = false;
+        private volatile RemoteStats stats = null;
+        private volatile PenaltySnapshot snapshot = new PenaltySnapshot(null, false);
+        /** The ops sent to this node, if recording */
+        private volatile List<OutboundOp> sentOps = null;
+        /** The messages written to the connection while pretending to be open */
+        private final List<String> written = new CopyOnWriteArrayList<>();
+
+        private TestNode(String name, Lavalink<?> lavalink, Map<String, String> headers) {
+            super(name, lavalink, URI.create("ws://localhost"), new Draft_6455(), headers);
+            this.headers = headers;
+        }
+
+        /**
+         * @return the headers of the next handshake
+         */
+        Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        /**
+         * Pretends to be open or closed, without calling {@link #onOpen} or {@link #onClose}
+         */
+        TestNode setOpen(boolean open) {
+            this.open = open;
+            return this;
+        }
+
+        List<String> getWritten() {
+            return written;
+        }
+
+        TestNode setAvailable(boolean available) {
+            this.available = available;
+            publishPenaltySnapshot();
+            return this;
+        }
+
+        /**
+         * Pretends to have received stats with the given CPU load and no frame issues
+         */
+        TestNode setStats(double systemLoad) {
+            return setStats(stats(0, 4, systemLoad, 0, 0, 0), System.nanoTime());
+        }
+
+        /**
+         * Pretends to have received the given stats at the given time
+         */
+        TestNode setStats(RemoteStats stats, long nanoTime) {
+            getStatsHistory().record(stats, nanoTime);
+            this.stats = stats;
+            publishPenaltySnapshot();
+            return this;
+        }
+
+        /**
+         * Starts recording the ops sent to this node, see {@link #getSentOps()}
+         */
+        TestNode record() {
+            sentOps = new CopyOnWriteArrayList<>();
+            return this;
+        }
+
+        List<OutboundOp> getSentOps() {
+            return sentOps;
+        }
+
+        @Override
+        public void send(long guildId, OutboundOp op, String message) {
+            List<OutboundOp> sentOps = this.sentOps;
+            if (sentOps != null) sentOps.add(op);
+            super.send(guildId, op, message);
+        }
+
+        @Override
+        void write(String message) {
+            written.add(message);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return available;
+        }
+
+        @Override
+        public RemoteStats getStats() {
+            return stats;
+        }
+
+        @Override
+        void publishPenaltySnapshot() {
+            RemoteStats stats = this.stats;
+            snapshot = stats == null
+                    ? new PenaltySnapshot(null, available)
+                    : lavalink.loadBalancer.getScoringModel().score(stats, getStatsHistory(), available);
+        }
+
+        @Override
+        public PenaltySnapshot getPenaltySnapshot() {
+            return snapshot;
+        }
+    }
+
+    /**
+     * @param framesDeficit average per minute, -1 for no frame stats
+     */
+    static RemoteStats stats(int players, int cores, double systemLoad, double lavalinkLoad, long memUsed, int framesDeficit) {
+        String frameStats = framesDeficit == -1 ? ""
+                : ",\"frameStats\":{\"sent\":3000,\"nulled\":0,\"deficit\":" + framesDeficit + "}";
+        return new RemoteStats(new JSONObject("{\"op\":\"stats\",\"players\":" + players
+                + ",\"playingPlayers\":" + players
+                + ",\"memory\":{\"reservable\":1073741824,\"used\":" + memUsed
+                + ",\"free\":" + Math.max(0, 536870912 - memUsed) + ",\"allocated\":536870912}"
+                + ",\"cpu\":{\"cores\":" + cores + ",\"systemLoad\":" + systemLoad + ",\"lavalinkLoad\":" + lavalinkLoad + "}"
+                + frameStats + ",\"uptime\":15754}"));
+    }
+
+    @Override
+    protected Link buildNewLink(String guildId) {
+        return new Link(this, guildId) {
+            @Override
+            protected void removeConnection() {
+            }
+
+            @Override
+            protected void queueAudioDisconnect() {
+            }
+
+            @Override
+            protected void queueAudioConnect(long channelId) {
+            }
+        };
+    }
+}
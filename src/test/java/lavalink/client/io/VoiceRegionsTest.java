@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class VoiceRegionsTest {
+
+    @Test
+    void endpointTest() {
+        Assertions.assertEquals("us-east", VoiceRegions.fromEndpoint("us-east1234.discord.media:443"));
+        Assertions.assertEquals("rotterdam", VoiceRegions.fromEndpoint("rotterdam42.discord.gg:80"));
+        Assertions.assertEquals("fra", VoiceRegions.fromEndpoint("c-fra08-8d7e4d9f.discord.media:443"));
+        Assertions.assertEquals("brazil", VoiceRegions.fromEndpoint("Brazil-12.discord.media"));
+        Assertions.assertEquals("india", VoiceRegions.fromEndpoint("india5:443"));
+        Assertions.assertNull(VoiceRegions.fromEndpoint(null));
+        Assertions.assertNull(VoiceRegions.fromEndpoint("1234.discord.media:443"));
+    }
+
+    @Test
+    void regionPenaltyTest() {
+        TestLavalink lavalink = new TestLavalink();
+        LavalinkSocket untagged = lavalink.createNode("untagged");
+        LavalinkSocket east = lavalink.createNode("east");
+        east.setRegions("US-East", "us-central");
+        east.setRegionLatency("rotterdam", 90);
+
+        Assertions.assertEquals(0, untagged.getRegionPenalty("us-east", 500));
+        Assertions.assertEquals(0, east.getRegionPenalty("us-east", 500));
+        Assertions.assertEquals(0, east.getRegionPenalty("us-central", 500));
+        Assertions.assertEquals(90, east.getRegionPenalty("rotterdam", 500));
+        Assertions.assertEquals(500, east.getRegionPenalty("sydney", 500));
+
+        east.setRegionLatency("rotterdam", -1);
+        Assertions.assertEquals(500, east.getRegionPenalty("rotterdam", 500));
+        Assertions.assertEquals(0, lavalink.getLoadBalancer().getRegionPenalty(east, null));
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io.jda;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import lavalink.client.LavalinkUtil;
+import lavalink.client.io.Link;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class JdaLavalinkTest {
+
+    /** A guild on the given shard of 4 */
+    private static String guild(int shard, int index) {
+        return Long.toString(((long) (index * 4 + shard)) << 22);
+    }
+
+    @Test
+    void shardLinksTest() {
+        JdaLavalink lavalink = new JdaLavalink("1", 4, null);
+        JdaLink a = lavalink.getLink(guild(1, 0));
+        JdaLink b = lavalink.getLink(guild(1, 1));
+        JdaLink c = lavalink.getLink(guild(3, 0));
+
+        Assertions.assertEquals(1, a.getShardId());
+        Assertions.assertEquals(LavalinkUtil.getShardFromSnowflake(c.getGuildId(), 4), c.getShardId());
+        Assertions.assertEquals(0, lavalink.getLinkCount(0));
+        Assertions.assertEquals(2, lavalink.getLinkCount(1));
+        Assertions.assertEquals(1, lavalink.getLinkCount(3));
+        Assertions.assertTrue(lavalink.getLinks(1).contains(b));
+
+        // Looking up an existing link does not add it again
+        lavalink.getLink(guild(1, 0));
+        Assertions.assertEquals(2, lavalink.getLinkCount(1));
+
+        a.destroy();
+        Assertions.assertEquals(1, lavalink.getLinkCount(1));
+        Assertions.assertFalse(lavalink.getLinks(1).contains(a));
+        lavalink.shutdown();
+    }
+
+    @Test
+    void destroyedWhileAddedTest() {
+        JdaLavalink lavalink = new JdaLavalink("1", 4, null) {
+            @Override
+            protected void onLinkAdded(@NonNull JdaLink link) {
+                // As if another thread had destroyed the link right after it was put in the registry
+                link.destroy();
+                super.onLinkAdded(link);
+            }
+        };
+        JdaLink link = lavalink.getLink(guild(1, 0));
+
+        Assertions.assertEquals(Link.State.DESTROYED, link.getState());
+        Assertions.assertEquals(0, lavalink.getLinkCount(1));
+        Assertions.assertNull(lavalink.getExistingLink(guild(1, 0)));
+        lavalink.shutdown();
+    }
+}
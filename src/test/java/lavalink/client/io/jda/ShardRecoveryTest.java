@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) Freya Arbjerg. Licensed under the MIT license
+ */
+
+package lavalink.client.io.jda;
+
+import lavalink.client.io.Link;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+class ShardRecoveryTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static String guild(int index) {
+        return Long.toString(((long) (index * 4 + 1)) << 22);
+    }
+
+    @Test
+    void pacingTest() {
+        JdaLavalink lavalink = new JdaLavalink("1", 4, null);
+        JdaLink a = lavalink.getLink(guild(0));
+        JdaLink b = lavalink.getLink(guild(1));
+        JdaLink c = lavalink.getLink(guild(2));
+        JdaLink d = lavalink.getLink(guild(3));
+        List<JdaLink> reconnected = new ArrayList<>();
+
+        ShardRecovery recovery = new ShardRecovery(1, Arrays.asList(a, b, c, d), link -> {
+            if (link == c) return false;
+            if (link == d) throw new IllegalStateException("No voice channel");
+            reconnected.add(link);
+            link.setState(Link.State.CONNECTING);
+            return true;
+        }, 0);
+        Assertions.assertEquals(4, recovery.getLinks());
+
+        // One link per step
+        Assertions.assertFalse(recovery.step(true, SECOND));
+        Assertions.assertEquals(Arrays.asList(a), reconnected);
+        Assertions.assertEquals(3, recovery.getPending());
+        Assertions.assertEquals(0.25, recovery.getProgress());
+
+        // Skips the links that are not reconnected after all, which leaves nothing to wait for
+        a.setState(Link.State.CONNECTED);
+        b.destroy();
+        Assertions.assertTrue(recovery.step(true, 2 * SECOND));
+        Assertions.assertEquals(Arrays.asList(a), reconnected);
+        Assertions.assertTrue(recovery.isDone());
+        Assertions.assertEquals(0, recovery.getPending());
+        Assertions.assertEquals(1, recovery.getReconnected());
+        Assertions.assertEquals(1, recovery.getConnected());
+        Assertions.assertEquals(1, recovery.getFailed());
+        Assertions.assertEquals(2000, recovery.getTimeToRecover());
+        lavalink.shutdown();
+    }
+
+    @Test
+    void timeoutTest() {
+        JdaLavalink lavalink = new JdaLavalink("1", 4, null);
+        JdaLink a = lavalink.getLink(guild(0));
+        JdaLink b = lavalink.getLink(guild(1));
+
+        ShardRecovery recovery = new ShardRecovery(1, Arrays.asList(a, b), link -> {
+            link.setState(Link.State.CONNECTING);
+            return true;
+        }, 0);
+        Assertions.assertFalse(recovery.step(true, SECOND));
+        Assertions.assertFalse(recovery.step(true, 2 * SECOND));
+        b.setState(Link.State.CONNECTED);
+
+        // Waits for a while for the links to connect, then gives up on them
+        Assertions.assertFalse(recovery.step(true, 20 * SECOND));
+        Assertions.assertTrue(recovery.step(true, 40 * SECOND));
+        Assertions.assertEquals(1, recovery.getConnected());
+        Assertions.assertEquals(1, recovery.getFailed());
+        Assertions.assertEquals(40_000, recovery.getTimeToRecover());
+        lavalink.shutdown();
+    }
+
+    @Test
+    void emptyTest() {
+        ShardRecovery recovery = new ShardRecovery(0, new ArrayList<>(), link -> true, 0);
+        Assertions.assertEquals(1.0, recovery.getProgress());
+        Assertions.assertTrue(recovery.step(true, 0));
+        Assertions.assertEquals(0, recovery.getTimeToRecover());
+    }
+}